@@ -0,0 +1,76 @@
+package be.thebeehive.htf.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.Collection;
+
+/**
+ * Checks that a steady-state greedy decision allocates nothing.
+ * <p>
+ * Runs {@link DecisionEngineBenchmark#decideActionsArena()} with the JMH GC profiler and fails, with exit code 1,
+ * if any parameter set reports a {@code gc.alloc.rate.norm} of a byte per operation or more. JMH spreads a few
+ * allocations of its own harness over all operations, so a benchmark that allocates nothing reports a small
+ * fraction of a byte, never a whole one.
+ * <p>
+ * Usage: {@code java -cp benchmarks/target/benchmarks.jar be.thebeehive.htf.benchmark.AllocationCheck}
+ */
+public final class AllocationCheck {
+
+    private static final String ALLOC_RATE_NORM = "gc.alloc.rate.norm";
+    private static final double MAX_BYTES_PER_OP = 1.0;
+
+    private AllocationCheck() {
+
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(DecisionEngineBenchmark.class.getName() + ".decideActionsArena$")
+                .param("actions", "10", "100", "1000")
+                .param("effects", "10", "100")
+                .warmupIterations(2)
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(3)
+                .measurementTime(TimeValue.seconds(1))
+                .forks(1)
+                .addProfiler(GCProfiler.class)
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+
+        int failures = 0;
+        for (RunResult run : results) {
+            String params = run.getParams().toString();
+            Result<?> norm = allocRateNorm(run);
+            if (norm == null) {
+                System.err.println("No " + ALLOC_RATE_NORM + " for " + params + ", does this JVM support the GC profiler?");
+                failures++;
+            } else if (norm.getScore() >= MAX_BYTES_PER_OP) {
+                System.err.printf("%s allocates %.1f B/op%n", params, norm.getScore());
+                failures++;
+            }
+        }
+        if (results.isEmpty() || failures > 0) {
+            System.err.println("Allocation check failed");
+            System.exit(1);
+        }
+        System.out.println("Allocation check passed: " + results.size() + " parameter sets allocate 0 B/op");
+    }
+
+    private static Result<?> allocRateNorm(RunResult run) {
+        // JMH declares the secondary results with the raw Result type, so only look them up by label.
+        // Older JMH versions prefix the label with a dot
+        for (String label : run.getSecondaryResults().keySet()) {
+            if (label.endsWith(ALLOC_RATE_NORM)) {
+                return run.getSecondaryResults().get(label);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,64 @@
+package be.thebeehive.htf.benchmark;
+
+import be.thebeehive.htf.client.ClientUtils;
+import be.thebeehive.htf.client.FixedValues;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Values;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ClientUtils#sumValues(Values, Values)} against its fixed-point counterpart.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ClientUtilsBenchmark {
+
+    private Values original;
+    private Values delta;
+    private FixedValues fixedOriginal;
+    private FixedValues fixedDelta;
+    private FixedValues fixedSum;
+
+    @Setup
+    public void setUp() {
+        original = values("72.5", "100", "64.25", "100");
+        delta = values("-12.75", "5", "8.5", "0");
+        fixedOriginal = FixedValues.of(original);
+        fixedDelta = FixedValues.of(delta);
+        fixedSum = new FixedValues();
+    }
+
+    @Benchmark
+    public Values sumValues() {
+        return ClientUtils.sumValues(original, delta);
+    }
+
+    @Benchmark
+    public FixedValues sumFixedValues() {
+        return fixedSum.set(fixedOriginal).add(fixedDelta);
+    }
+
+    private static Values values(String hull, String maxHull, String crew, String maxCrew) {
+        Values v = new Values();
+        v.setHullStrength(new BigDecimal(hull));
+        v.setMaxHullStrength(new BigDecimal(maxHull));
+        v.setCrewHealth(new BigDecimal(crew));
+        v.setMaxCrewHealth(new BigDecimal(maxCrew));
+        return v;
+    }
+}
@@ -0,0 +1,64 @@
+package be.thebeehive.htf.benchmark;
+
+import be.thebeehive.htf.client.DecisionArena;
+import be.thebeehive.htf.client.DecisionEngine;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+import be.thebeehive.htf.simulation.RoundGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one greedy decision. Run with {@code -prof gc}: the arena variant should report
+ * a gc.alloc.rate.norm of ~0 B/op, which {@link AllocationCheck} verifies.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DecisionEngineBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int actions;
+
+    @Param({"10", "100", "1000", "10000"})
+    public int effects;
+
+    @Param({"5"})
+    public int maxActions;
+
+    private GameRoundServerMessage msg;
+    private DecisionEngine engine;
+    private DecisionArena arena;
+
+    @Setup
+    public void setUp() {
+        msg = new RoundGenerator(42).actions(actions, actions).effects(effects, effects)
+                .maxStep(10).blockerChance(0.5).next(1);
+        engine = new DecisionEngine();
+        arena = new DecisionArena();
+    }
+
+    @Benchmark
+    public List<Long> decideActions() {
+        return engine.decideActions(msg, maxActions);
+    }
+
+    @Benchmark
+    public int decideActionsArena() {
+        return engine.decideActions(msg, maxActions, arena);
+    }
+}
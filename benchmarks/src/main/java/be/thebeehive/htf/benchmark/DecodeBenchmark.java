@@ -0,0 +1,81 @@
+package be.thebeehive.htf.benchmark;
+
+import be.thebeehive.htf.library.GameRoundDecoder;
+import be.thebeehive.htf.library.GameRoundFrame;
+import be.thebeehive.htf.library.protocol.server.ServerMessage;
+import be.thebeehive.htf.simulation.RoundGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding a GameRoundServerMessage frame: POJO binding as {@code HtfClient.onMessage} does for plain listeners,
+ * against the streaming {@link GameRoundDecoder} used for frame listeners. The String variants include the
+ * UTF-8 decoding of the payload that the zero-copy {@code TextBuffer} path skips.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DecodeBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int actions;
+
+    @Param({"10", "100", "1000", "10000"})
+    public int effects;
+
+    private ObjectMapper objectMapper;
+    private byte[] payload;
+    private GameRoundDecoder decoder;
+    private GameRoundFrame frame;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        objectMapper = new ObjectMapper();
+        payload = objectMapper.writerFor(ServerMessage.class)
+                .writeValueAsBytes(new RoundGenerator(42).actions(actions, actions).effects(effects, effects)
+                        .maxStep(10).blockerChance(0.5).next(1));
+        decoder = new GameRoundDecoder(objectMapper.getFactory());
+        frame = new GameRoundFrame();
+    }
+
+    @Benchmark
+    public ServerMessage readValue() throws JsonProcessingException {
+        return objectMapper.readValue(new String(payload, StandardCharsets.UTF_8), ServerMessage.class);
+    }
+
+    @Benchmark
+    public ServerMessage readValueBytes() throws IOException {
+        return objectMapper.readValue(payload, ServerMessage.class);
+    }
+
+    @Benchmark
+    public GameRoundFrame decodeFrame() throws IOException {
+        decoder.decode(new String(payload, StandardCharsets.UTF_8), frame);
+        return frame;
+    }
+
+    @Benchmark
+    public GameRoundFrame decodeFrameBytes() throws IOException {
+        decoder.decode(ByteBuffer.wrap(payload), frame);
+        return frame;
+    }
+}
@@ -0,0 +1,368 @@
+package be.thebeehive.htf.benchmark;
+
+import be.thebeehive.htf.client.ClientUtils;
+import be.thebeehive.htf.client.FixedValues;
+import be.thebeehive.htf.library.GameRoundDecoder;
+import be.thebeehive.htf.library.GameRoundFrame;
+import be.thebeehive.htf.library.SelectActionsWriter;
+import be.thebeehive.htf.library.WireFormat;
+import be.thebeehive.htf.library.protocol.client.SelectActionsClientMessage;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Action;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Effect;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Values;
+import be.thebeehive.htf.library.protocol.server.ServerMessage;
+import be.thebeehive.htf.simulation.RoundGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Checks the hand-written hot paths against the library code they replace, on random inputs.
+ * <p>
+ * {@link SelectActionsWriter} must write exactly the bytes that {@link ObjectMapper} writes for a
+ * {@link SelectActionsClientMessage}. {@link GameRoundDecoder} must fill a {@link GameRoundFrame} with what
+ * {@link ObjectMapper} binds to a {@link GameRoundServerMessage}, in every {@link WireFormat}, with decimals
+ * rounded half-up to {@link GameRoundFrame#SCALE}. {@link FixedValues} must convert, add, and test for death and
+ * critical health like the {@link BigDecimal} code of {@link ClientUtils} and the original decision engine.
+ * <p>
+ * Every check prints its first mismatches and counts all of them. Run it after changing one of these paths.
+ * <p>
+ * Usage: {@code java -cp benchmarks/target/benchmarks.jar be.thebeehive.htf.benchmark.EquivalenceCheck [cases] [seed]},
+ * the exit code is 1 if any check found a mismatch.
+ */
+public final class EquivalenceCheck {
+
+    private static final int MAX_REPORTED = 5;
+    private static final long[] THRESHOLD_PERCENTS = {15, 30, 45};
+    // Decimals the generator never produces: rounding ties, exponents, too many digits for the fast path
+    private static final String[] ODD_DECIMALS = {
+            "1.23456749", "1.2345675", "-1.2345675", "1.23456750001", "-0.0000005", "1E+2", "2.5E-3",
+            "123456789012.5", "9999999999.99999950", "0", "-7"
+    };
+    // Doubles, which the binary formats carry as floating-point values instead of decimals
+    private static final double[] ODD_DOUBLES = {
+            1.2345675, -1.2345675, 0.0000005, -0.0000005, 2.5E-3, -2.5, 0.1 + 0.2, 1E-7, 123456.1234565
+    };
+
+    private final int cases;
+    private final long seed;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * @param cases the number of random inputs per check.
+     * @param seed  the random seed; the same seed checks the same inputs.
+     */
+    public EquivalenceCheck(int cases, long seed) {
+        this.cases = cases;
+        this.seed = seed;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int cases = args.length >= 1 ? Integer.parseInt(args[0]) : 100_000;
+        long seed = args.length >= 2 ? Long.parseLong(args[1]) : 42L;
+        EquivalenceCheck check = new EquivalenceCheck(cases, seed);
+
+        int mismatches = check.report("SelectActionsWriter", check.checkSelectActionsWriter());
+        for (WireFormat format : WireFormat.values()) {
+            mismatches += check.report("GameRoundDecoder " + format, check.checkGameRoundDecoder(format));
+        }
+        mismatches += check.report("FixedValues", check.checkFixedValues());
+        if (mismatches > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Compares {@link SelectActionsWriter} with {@link ObjectMapper}, through both write methods. Inputs include
+     * null round ids, null id lists, empty lists and the extreme longs.
+     *
+     * @return the number of mismatches.
+     */
+    public int checkSelectActionsWriter() throws JsonProcessingException {
+        Random random = new Random(seed);
+        SelectActionsWriter writer = new SelectActionsWriter();
+        int mismatches = 0;
+        for (int t = 0; t < cases; t++) {
+            UUID roundId = random.nextInt(50) == 0 ? null : new UUID(random.nextLong(), random.nextLong());
+            boolean nullIds = random.nextInt(80) == 0;
+            int count = random.nextInt(random.nextInt(100) == 0 ? 200 : 8);
+            List<Long> ids = nullIds ? null : new ArrayList<>(count);
+            long[] idArray = new long[count];
+            for (int i = 0; i < count && !nullIds; i++) {
+                long id = randomId(random);
+                ids.add(id);
+                idArray[i] = id;
+            }
+
+            String expected = objectMapper.writeValueAsString(new SelectActionsClientMessage(roundId, ids));
+            String actual = string(writer.write(roundId, ids));
+            if (!expected.equals(actual)) {
+                mismatches = mismatch(mismatches, expected, actual);
+            } else if (roundId != null && !nullIds) {
+                actual = string(writer.write(roundId.getMostSignificantBits(), roundId.getLeastSignificantBits(),
+                        idArray, count));
+                if (!expected.equals(actual)) {
+                    mismatches = mismatch(mismatches, expected, actual);
+                }
+            }
+        }
+        return mismatches;
+    }
+
+    /**
+     * Compares {@link GameRoundDecoder} with {@link ObjectMapper} binding. Every round is serialized in the format,
+     * then decoded by both; the values of some actions are replaced by odd decimals, doubles or null.
+     *
+     * @param format the wire format.
+     * @return the number of mismatches.
+     */
+    public int checkGameRoundDecoder(WireFormat format) throws IOException {
+        Random random = new Random(seed);
+        ObjectMapper mapper = format.newObjectMapper();
+        GameRoundDecoder decoder = new GameRoundDecoder(mapper.getFactory());
+        GameRoundFrame frame = new GameRoundFrame();
+        RoundGenerator generator = new RoundGenerator(seed).actions(0, 40).effects(0, 20);
+        int mismatches = 0;
+        for (int t = 0; t < cases; t++) {
+            GameRoundServerMessage round = generator.next(t);
+            for (Action action : round.getActions()) {
+                if (random.nextInt(5) == 0) {
+                    String decimal = ODD_DECIMALS[random.nextInt(ODD_DECIMALS.length)];
+                    action.getValues().setHullStrength(new BigDecimal(decimal));
+                }
+                if (random.nextInt(50) == 0) {
+                    action.getValues().setCrewHealth(null);
+                }
+            }
+            byte[] bytes = mapper.writerFor(ServerMessage.class).writeValueAsBytes(round);
+            if (random.nextInt(4) == 0) {
+                bytes = withDoubles(mapper, bytes, random);
+            }
+
+            String expected = describe((GameRoundServerMessage) mapper.readValue(bytes, ServerMessage.class));
+            String actual = decoder.decode(ByteBuffer.wrap(bytes), frame) ? describe(frame) : "not a game round";
+            if (!format.isBinary() && expected.equals(actual)) {
+                String json = new String(bytes, StandardCharsets.UTF_8);
+                actual = decoder.decode(json, frame) ? describe(frame) : "not a game round";
+            }
+            if (!expected.equals(actual)) {
+                mismatches = mismatch(mismatches, expected, actual);
+            }
+        }
+        return mismatches;
+    }
+
+    /**
+     * Compares {@link FixedValues} with the {@link BigDecimal} arithmetic it replaces: conversion of decimals of any
+     * scale, {@link ClientUtils#sumValues(Values, Values)}, {@link ClientUtils#isDead(Values)} and the percentage
+     * thresholds, on values with at most 6 decimal places, as the server sends them.
+     *
+     * @return the number of mismatches.
+     */
+    public int checkFixedValues() {
+        Random random = new Random(seed);
+        int mismatches = 0;
+        for (int t = 0; t < cases; t++) {
+            BigDecimal decimal = randomDecimal(random, random.nextInt(10) == 0 ? 9 : 6);
+            if (FixedValues.toFixed(decimal) != scaled(decimal)) {
+                mismatches = mismatch(mismatches, decimal + " -> " + scaled(decimal),
+                        decimal + " -> " + FixedValues.toFixed(decimal));
+                continue;
+            }
+
+            Values original = randomValues(random);
+            Values delta = randomValues(random);
+            String expected = describeState(original) + " |" + describeState(ClientUtils.sumValues(original, delta));
+            String actual = describeState(FixedValues.of(original)) + " |"
+                    + describeState(FixedValues.of(original).add(FixedValues.of(delta)));
+            if (!expected.equals(actual)) {
+                mismatches = mismatch(mismatches, expected, actual);
+            }
+        }
+        return mismatches;
+    }
+
+    private static String describeState(Values values) {
+        StringBuilder sb = new StringBuilder();
+        append(sb, values);
+        sb.append(" dead ").append(ClientUtils.isDead(values));
+        for (long threshold : THRESHOLD_PERCENTS) {
+            sb.append(" below ").append(threshold).append(' ').append(isBelow(values, threshold));
+        }
+        return sb.toString();
+    }
+
+    private static String describeState(FixedValues values) {
+        StringBuilder sb = new StringBuilder();
+        append(sb, values.getHullStrength(), values.getMaxHullStrength(), values.getCrewHealth(),
+                values.getMaxCrewHealth());
+        sb.append(" dead ").append(values.isDead());
+        for (long threshold : THRESHOLD_PERCENTS) {
+            sb.append(" below ").append(threshold).append(' ').append(values.isBelow(threshold));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The percentage test of the original decision engine, on {@link BigDecimal}s.
+     */
+    private static boolean isBelow(Values values, long thresholdPercent) {
+        BigDecimal threshold = BigDecimal.valueOf(thresholdPercent, 2);
+        return ratio(values.getHullStrength(), values.getMaxHullStrength()).compareTo(threshold) < 0 ||
+                ratio(values.getCrewHealth(), values.getMaxCrewHealth()).compareTo(threshold) < 0;
+    }
+
+    private static BigDecimal ratio(BigDecimal value, BigDecimal max) {
+        return max.compareTo(BigDecimal.ZERO) > 0 ? value.divide(max, 2, RoundingMode.HALF_UP) : BigDecimal.ZERO;
+    }
+
+    /**
+     * Random values; a quarter of the hull strengths are a multiple of half a percent of their maximum, so the
+     * percentages hit rounding ties.
+     */
+    private static Values randomValues(Random random) {
+        Values values = new Values();
+        values.setHullStrength(randomDecimal(random, 6));
+        values.setMaxHullStrength(randomDecimal(random, 6));
+        values.setCrewHealth(randomDecimal(random, 6));
+        values.setMaxCrewHealth(randomDecimal(random, 6));
+        if (random.nextInt(4) == 0) {
+            long unit = 1 + random.nextInt(1_000_000);
+            int scale = random.nextInt(7);
+            values.setMaxHullStrength(BigDecimal.valueOf(unit * 200, scale));
+            values.setHullStrength(BigDecimal.valueOf(unit * random.nextInt(201), scale));
+        }
+        return values;
+    }
+
+    /**
+     * A decimal with up to maxScale decimal places and 9 integer digits, mostly small, sometimes zero or negative.
+     */
+    private static BigDecimal randomDecimal(Random random, int maxScale) {
+        int scale = random.nextInt(maxScale + 1);
+        long bound;
+        switch (random.nextInt(4)) {
+            case 0:
+                bound = 10;
+                break;
+            case 1:
+                bound = 1_000_000_000L;
+                break;
+            default:
+                bound = 1_000;
+                break;
+        }
+        long unscaled = (long) (random.nextDouble() * bound * Math.pow(10, scale));
+        if (random.nextInt(4) == 0) {
+            unscaled = -unscaled;
+        }
+        return BigDecimal.valueOf(unscaled, scale);
+    }
+
+    /**
+     * Rewrites a round with the crew health of every action as a double.
+     */
+    private static byte[] withDoubles(ObjectMapper mapper, byte[] bytes, Random random) throws IOException {
+        JsonNode round = mapper.readTree(bytes);
+        for (JsonNode action : round.path("actions")) {
+            ((ObjectNode) action.get("values")).put("crewHealth", ODD_DOUBLES[random.nextInt(ODD_DOUBLES.length)]);
+        }
+        return mapper.writeValueAsBytes(round);
+    }
+
+    private static String describe(GameRoundServerMessage round) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(round.getRound()).append(' ').append(round.getRoundId())
+                .append(" alive ").append(round.getOurSubmarine().isAlive());
+        append(sb, round.getOurSubmarine().getValues());
+        for (Action action : round.getActions()) {
+            sb.append(" | action ").append(action.getId()).append(" blocks ").append(action.getEffectId());
+            append(sb, action.getValues());
+        }
+        for (Effect effect : round.getEffects()) {
+            sb.append(" | effect ").append(effect.getId()).append(" step ").append(effect.getStep());
+            append(sb, effect.getValues());
+        }
+        return sb.toString();
+    }
+
+    private static String describe(GameRoundFrame frame) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(frame.getRound()).append(' ').append(frame.getRoundId())
+                .append(" alive ").append(frame.isAlive());
+        append(sb, frame.getHullStrength(), frame.getMaxHullStrength(), frame.getCrewHealth(),
+                frame.getMaxCrewHealth());
+        for (int a = 0; a < frame.getActionCount(); a++) {
+            sb.append(" | action ").append(frame.getActionIds()[a]).append(" blocks ")
+                    .append(frame.getActionEffectIds()[a]);
+            append(sb, frame.getActionHull()[a], frame.getActionMaxHull()[a], frame.getActionCrew()[a],
+                    frame.getActionMaxCrew()[a]);
+        }
+        for (int e = 0; e < frame.getEffectCount(); e++) {
+            sb.append(" | effect ").append(frame.getEffectIds()[e]).append(" step ").append(frame.getEffectSteps()[e]);
+            append(sb, frame.getEffectHull()[e], frame.getEffectMaxHull()[e], frame.getEffectCrew()[e],
+                    frame.getEffectMaxCrew()[e]);
+        }
+        return sb.toString();
+    }
+
+    private static void append(StringBuilder sb, Values values) {
+        append(sb, scaled(values.getHullStrength()), scaled(values.getMaxHullStrength()),
+                scaled(values.getCrewHealth()), scaled(values.getMaxCrewHealth()));
+    }
+
+    private static void append(StringBuilder sb, long hull, long maxHull, long crew, long maxCrew) {
+        sb.append(' ').append(hull).append('/').append(maxHull).append(' ').append(crew).append('/').append(maxCrew);
+    }
+
+    /**
+     * The exact fixed-point value of a decimal, 0 for null. The frame cannot hold values beyond a long.
+     */
+    private static long scaled(BigDecimal value) {
+        return value == null ? 0L : value.movePointRight(6).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    private static long randomId(Random random) {
+        switch (random.nextInt(8)) {
+            case 0:
+                return Long.MIN_VALUE;
+            case 1:
+                return Long.MAX_VALUE;
+            case 2:
+                return random.nextLong();
+            default:
+                return random.nextInt(1_000) - 100;
+        }
+    }
+
+    private static String string(ByteBuffer bytes) {
+        return new String(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining(),
+                StandardCharsets.UTF_8);
+    }
+
+    private static int mismatch(int mismatches, Object expected, Object actual) {
+        if (mismatches < MAX_REPORTED) {
+            System.out.println("  expected: " + expected);
+            System.out.println("  actual:   " + actual);
+        }
+        return mismatches + 1;
+    }
+
+    private int report(String name, int mismatches) {
+        System.out.println(name + ": " + (mismatches == 0 ? "ok" : mismatches + " mismatches") + " in " + cases
+                + " cases");
+        return mismatches;
+    }
+}
@@ -0,0 +1,49 @@
+package be.thebeehive.htf.benchmark;
+
+import be.thebeehive.htf.library.LatencyHistograms;
+import be.thebeehive.htf.library.LatencyStage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of measuring one stage: reading the clock and recording into a shared {@link LatencyHistograms},
+ * from one thread and from four threads at once.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LatencyHistogramBenchmark {
+
+    private final LatencyHistograms histograms = new LatencyHistograms();
+
+    @Benchmark
+    public long clock() {
+        return System.nanoTime();
+    }
+
+    @Benchmark
+    public void measureStage() {
+        long start = System.nanoTime();
+        histograms.onLatency(LatencyStage.DECIDE, System.nanoTime() - start);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void measureStageContended() {
+        long start = System.nanoTime();
+        histograms.onLatency(LatencyStage.DECIDE, System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,74 @@
+package be.thebeehive.htf.benchmark;
+
+import be.thebeehive.htf.library.SelectActionsWriter;
+import be.thebeehive.htf.library.protocol.client.SelectActionsClientMessage;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializing the answer of a round: what {@code HtfClient.send} used to do with an ObjectMapper, against the
+ * {@link SelectActionsWriter} from a List and from the arena's {@code long[]}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SelectActionsWriterBenchmark {
+
+    @Param({"5"})
+    public int actions;
+
+    private ObjectMapper objectMapper;
+    private SelectActionsWriter writer;
+    private SelectActionsClientMessage msg;
+    private UUID roundId;
+    private long[] actionIds;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        writer = new SelectActionsWriter();
+        roundId = UUID.randomUUID();
+        actionIds = new long[actions];
+        List<Long> ids = new ArrayList<>(actions);
+        for (int i = 0; i < actions; i++) {
+            actionIds[i] = 1_000L + 37L * i;
+            ids.add(actionIds[i]);
+        }
+        msg = new SelectActionsClientMessage(roundId, ids);
+    }
+
+    @Benchmark
+    public String objectMapper() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(msg);
+    }
+
+    @Benchmark
+    public ByteBuffer writerFromList() {
+        return writer.write(msg.getRoundId(), msg.getActionIds());
+    }
+
+    @Benchmark
+    public ByteBuffer writerFromArray() {
+        return writer.write(roundId.getMostSignificantBits(), roundId.getLeastSignificantBits(), actionIds, actions);
+    }
+}
@@ -0,0 +1,69 @@
+package be.thebeehive.htf.benchmark;
+
+import be.thebeehive.htf.client.DecisionEngine;
+import be.thebeehive.htf.client.FixedValues;
+import be.thebeehive.htf.client.RoundModel;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+import be.thebeehive.htf.simulation.RoundGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of simulating one plan, which is what {@code DecisionEngine.improveAndSanityCheck} and the search
+ * planners do for every candidate, and of compiling a round into a {@link RoundModel}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SimulationBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int actions;
+
+    @Param({"10", "100", "1000", "10000"})
+    public int effects;
+
+    private GameRoundServerMessage msg;
+    private RoundModel model;
+    private RoundModel.Simulator simulator;
+    private FixedValues out;
+    private int[] plan;
+    private int length;
+
+    @Setup
+    public void setUp() {
+        msg = new RoundGenerator(42).actions(actions, actions).effects(effects, effects)
+                .maxStep(10).blockerChance(0.5).next(1);
+        model = RoundModel.of(msg);
+        simulator = model.newSimulator();
+        out = new FixedValues();
+        List<Long> greedy = new DecisionEngine().decideActions(msg, 5);
+        plan = new int[Math.max(1, greedy.size())];
+        length = model.toPlan(greedy, plan);
+    }
+
+    @Benchmark
+    public boolean simulate() {
+        return simulator.simulate(plan, length, out);
+    }
+
+    @Benchmark
+    public RoundModel load() {
+        return model.load(msg);
+    }
+}
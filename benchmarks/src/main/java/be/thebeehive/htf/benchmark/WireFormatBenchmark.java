@@ -0,0 +1,89 @@
+package be.thebeehive.htf.benchmark;
+
+import be.thebeehive.htf.library.GameRoundDecoder;
+import be.thebeehive.htf.library.GameRoundFrame;
+import be.thebeehive.htf.library.WireFormat;
+import be.thebeehive.htf.library.protocol.client.ClientMessage;
+import be.thebeehive.htf.library.protocol.client.SelectActionsClientMessage;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+import be.thebeehive.htf.library.protocol.server.ServerMessage;
+import be.thebeehive.htf.simulation.RoundGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Payload size and parse time of a game round in every {@link WireFormat}. The encoded size of the round is
+ * printed once per trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WireFormatBenchmark {
+
+    @Param({"JSON", "SMILE", "CBOR"})
+    public WireFormat format;
+
+    @Param({"10", "100", "1000", "10000"})
+    public int actions;
+
+    private ObjectMapper objectMapper;
+    private ObjectWriter answerWriter;
+    private byte[] round;
+    private SelectActionsClientMessage answer;
+    private GameRoundDecoder decoder;
+    private GameRoundFrame frame;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = format.newObjectMapper();
+        answerWriter = objectMapper.writerFor(ClientMessage.class);
+        GameRoundServerMessage msg = new RoundGenerator(42).actions(actions, actions)
+                .effects(actions / 2, actions / 2).maxStep(10).blockerChance(0.5).next(1);
+        round = objectMapper.writerFor(ServerMessage.class).writeValueAsBytes(msg);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < Math.min(5, actions); i++) {
+            ids.add(msg.getActions().get(i).getId());
+        }
+        answer = new SelectActionsClientMessage(msg.getRoundId(), ids);
+        decoder = new GameRoundDecoder(objectMapper.getFactory());
+        frame = new GameRoundFrame();
+        System.out.println();
+        System.out.println(format + " round of " + actions + " actions: " + round.length + " bytes, answer: "
+                + answerWriter.writeValueAsBytes(answer).length + " bytes");
+    }
+
+    @Benchmark
+    public ServerMessage readValue() throws IOException {
+        return objectMapper.readValue(round, ServerMessage.class);
+    }
+
+    @Benchmark
+    public GameRoundFrame decodeFrame() throws IOException {
+        decoder.decode(round, 0, round.length, frame);
+        return frame;
+    }
+
+    @Benchmark
+    public byte[] writeAnswer() throws IOException {
+        return answerWriter.writeValueAsBytes(answer);
+    }
+}
@@ -0,0 +1,21 @@
+package be.thebeehive.htf.client;
+
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+
+import java.util.List;
+
+/**
+ * A strategy that picks the ordered list of action ids to send for a game round.
+ */
+public interface ActionPlanner {
+
+    /**
+     * Decides which actions to execute this round and in which order.
+     *
+     * @param msg            the current game round.
+     * @param maxActionsHint the maximum number of actions that may be returned.
+     * @return the ordered action ids, never null.
+     */
+    List<Long> decideActions(GameRoundServerMessage msg, int maxActionsHint);
+
+}
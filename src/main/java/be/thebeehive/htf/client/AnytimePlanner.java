@@ -0,0 +1,214 @@
+package be.thebeehive.htf.client;
+
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Anytime planner: starts from the greedy plan of a seed planner and keeps improving it with a local search
+ * over action orderings until the per-round time budget runs out.
+ * <p>
+ * The greedy plan is available right away, so a tiny budget degrades to the greedy answer while spare time
+ * is spent on swapping, moving, replacing, inserting and removing actions. Moves that do not make the plan
+ * worse are accepted, so the search can walk across plateaus; after too many moves without improvement it
+ * restarts from the best plan found. The random generator is seeded with the round number, so the search only
+ * depends on the round and the time available.
+ */
+public class AnytimePlanner implements ActionPlanner {
+
+    /**
+     * Default time budget per round. The server expects an answer within one second.
+     */
+    public static final long DEFAULT_BUDGET_MILLIS = 400;
+
+    private static final int DEADLINE_CHECK_INTERVAL = 64;
+    private static final int RESTART_AFTER = 2_000;
+
+    private final ActionPlanner seed;
+    private final long budgetNanos;
+
+    private long lastIterations;
+    private long lastImprovement;
+
+    public AnytimePlanner() {
+        this(new DecisionEngine(), DEFAULT_BUDGET_MILLIS);
+    }
+
+    /**
+     * @param seed         the planner providing the initial plan.
+     * @param budgetMillis the time budget per round in milliseconds, including the seed planner.
+     */
+    public AnytimePlanner(ActionPlanner seed, long budgetMillis) {
+        this.seed = seed;
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+    }
+
+    @Override
+    public List<Long> decideActions(GameRoundServerMessage msg, int maxActionsHint) {
+        return decideActions(msg, maxActionsHint, System.nanoTime() + budgetNanos);
+    }
+
+    /**
+     * Decides the actions of a round, improving the greedy plan until the given deadline.
+     *
+     * @param msg            the current game round.
+     * @param maxActionsHint the maximum number of actions that may be returned.
+     * @param deadlineNanos  the {@link System#nanoTime()} at which the best plan so far must be returned.
+     * @return the ordered action ids.
+     */
+    public List<Long> decideActions(GameRoundServerMessage msg, int maxActionsHint, long deadlineNanos) {
+        List<Long> greedy = seed.decideActions(msg, maxActionsHint);
+        RoundModel model = RoundModel.of(msg);
+        int n = model.actionCount;
+        int cap = Math.min(maxActionsHint, n);
+        if (cap <= 0) {
+            return greedy;
+        }
+
+        RoundModel.Simulator simulator = model.newSimulator();
+        int[] best = new int[Math.max(n, greedy.size())];
+        int bestLength = Math.min(cap, model.toPlan(greedy, best));
+        long greedyScore = simulator.evaluate(best, bestLength);
+        long bestScore = greedyScore;
+
+        int[] current = new int[n];
+        int[] candidate = new int[n];
+        boolean[] used = new boolean[n];
+        System.arraycopy(best, 0, current, 0, bestLength);
+        int currentLength = bestLength;
+        long currentScore = bestScore;
+
+        Random random = new Random(msg.getRound());
+        long iterations = 0;
+        int sinceImprovement = 0;
+        while (true) {
+            if (iterations % DEADLINE_CHECK_INTERVAL == 0 && System.nanoTime() - deadlineNanos >= 0) {
+                break;
+            }
+            iterations++;
+
+            System.arraycopy(current, 0, candidate, 0, currentLength);
+            int candidateLength = mutate(candidate, currentLength, cap, n, used, random);
+            if (candidateLength < 0) {
+                continue;
+            }
+
+            long score = simulator.evaluate(candidate, candidateLength);
+            if (score >= currentScore) {
+                int[] tmp = current;
+                current = candidate;
+                candidate = tmp;
+                currentLength = candidateLength;
+                currentScore = score;
+            }
+            if (score > bestScore) {
+                System.arraycopy(current, 0, best, 0, currentLength);
+                bestLength = currentLength;
+                bestScore = score;
+                sinceImprovement = 0;
+            } else if (++sinceImprovement >= RESTART_AFTER) {
+                System.arraycopy(best, 0, current, 0, bestLength);
+                currentLength = bestLength;
+                currentScore = bestScore;
+                sinceImprovement = 0;
+            }
+        }
+
+        this.lastIterations = iterations;
+        this.lastImprovement = bestScore - greedyScore;
+        return model.toActionIds(best, bestLength);
+    }
+
+    /**
+     * Applies one random move to the plan: a swap, move, replacement, insertion or removal.
+     *
+     * @param plan   the action indexes, must have room for cap actions.
+     * @param length the number of actions in the plan.
+     * @param cap    the maximum plan length.
+     * @param n      the number of actions of the round.
+     * @param used   scratch space of n flags, all false.
+     * @param random the source of the move.
+     * @return the new plan length, or -1 if the chosen move is not possible.
+     */
+    static int mutate(int[] plan, int length, int cap, int n, boolean[] used, Random random) {
+        switch (random.nextInt(5)) {
+            case 0: {
+                // Swap two actions
+                if (length < 2) return -1;
+                int i = random.nextInt(length);
+                int j = random.nextInt(length);
+                int tmp = plan[i];
+                plan[i] = plan[j];
+                plan[j] = tmp;
+                return length;
+            }
+            case 1: {
+                // Move one action to another position
+                if (length < 2) return -1;
+                int from = random.nextInt(length);
+                int to = random.nextInt(length);
+                int a = plan[from];
+                if (from < to) {
+                    System.arraycopy(plan, from + 1, plan, from, to - from);
+                } else {
+                    System.arraycopy(plan, to, plan, to + 1, from - to);
+                }
+                plan[to] = a;
+                return length;
+            }
+            case 2: {
+                // Replace one action with an unused one
+                if (length < 1 || length >= n) return -1;
+                int a = randomUnused(plan, length, n, used, random);
+                plan[random.nextInt(length)] = a;
+                return length;
+            }
+            case 3: {
+                // Insert an unused action
+                if (length >= cap) return -1;
+                int a = randomUnused(plan, length, n, used, random);
+                int at = random.nextInt(length + 1);
+                System.arraycopy(plan, at, plan, at + 1, length - at);
+                plan[at] = a;
+                return length + 1;
+            }
+            default: {
+                // Remove one action
+                if (length < 1) return -1;
+                int at = random.nextInt(length);
+                System.arraycopy(plan, at + 1, plan, at, length - at - 1);
+                return length - 1;
+            }
+        }
+    }
+
+    private static int randomUnused(int[] plan, int length, int n, boolean[] used, Random random) {
+        for (int i = 0; i < length; i++) used[plan[i]] = true;
+        int skip = random.nextInt(n - length);
+        int pick = -1;
+        for (int a = 0; a < n; a++) {
+            if (!used[a] && skip-- == 0) {
+                pick = a;
+                break;
+            }
+        }
+        for (int i = 0; i < length; i++) used[plan[i]] = false;
+        return pick;
+    }
+
+    /**
+     * @return the number of local search moves tried in the last round.
+     */
+    public long getLastIterations() {
+        return lastIterations;
+    }
+
+    /**
+     * @return how much the last plan improved on the greedy plan, see {@link RoundModel#score(FixedValues)}.
+     */
+    public long getLastImprovement() {
+        return lastImprovement;
+    }
+}
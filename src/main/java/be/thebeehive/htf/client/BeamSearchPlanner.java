@@ -0,0 +1,423 @@
+package be.thebeehive.htf.client;
+
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Beam search over action plans, one slot per step.
+ * <p>
+ * A node is a partial plan, stored in primitive arrays. It holds the values after its last step, a bitset of
+ * its used actions, a bitset of the effects it blocked, and the harm of the effects still to come that it has
+ * not blocked. Each step extends every node with every unused action, applying the action and then the
+ * effects of the step with the {@link RoundModel} rules. Only the {@code width} best children survive.
+ * <p>
+ * Children are ranked by {@link RoundModel#score(FixedValues)} minus the harm still to come, with harm
+ * counted as in {@link DecisionEngine}. The ranking therefore rewards healing and benefits, and also
+ * blocking effects that have not hit yet. Children with the same used actions, blocked effects and values are
+ * merged, because orders that end in the same state are worth the same. They are found by a hash of the
+ * state and compared in full before they are merged, so distinct states are never merged. Every node is also
+ * scored exactly as a finished plan, and the best one is returned if it beats the seed plan.
+ * <p>
+ * A step costs {@code width x actions} child evaluations plus sorting them. Latency therefore grows nearly
+ * linearly with the width, and a wider beam never keeps fewer plans. An instance reuses its scratch state
+ * between rounds and must not be used by two threads at the same time.
+ */
+public class BeamSearchPlanner implements ActionPlanner {
+
+    public static final int DEFAULT_WIDTH = 64;
+
+    private final ActionPlanner seed;
+    private final int width;
+
+    private final RoundModel model = new RoundModel();
+    private final RoundModel.Simulator simulator = model.newSimulator();
+    private final FixedValues values = new FixedValues();
+    private final LongIntHashMap seen = new LongIntHashMap();
+
+    // Per action and effect
+    private long[] actionKey = new long[0];
+    private long[] effectKey = new long[0];
+    private long[] effectHarm = new long[0];
+    private int usedWords;
+    private int blockedWords;
+
+    // Two layers of nodes
+    private final Layer[] layers = {new Layer(), new Layer()};
+
+    // Children of one step, before the beam is cut
+    private int childCount;
+    private int[] childParent = new int[0];
+    private int[] childAction = new int[0];
+    private long[] childHull = new long[0];
+    private long[] childMaxHull = new long[0];
+    private long[] childCrew = new long[0];
+    private long[] childMaxCrew = new long[0];
+    private long[] childPending = new long[0];
+    private long[] childRank = new long[0];
+    private int[] childBlocks = new int[0];
+    private int[] childOrder = new int[0];
+
+    // Path back, indexed by step * width + node
+    private int[] parent = new int[0];
+    private int[] choice = new int[0];
+
+    private int[] plan = new int[0];
+    private int[] bestPlan = new int[0];
+    private long lastScore;
+    private long lastChildren;
+
+    public BeamSearchPlanner() {
+        this(new DecisionEngine(), DEFAULT_WIDTH);
+    }
+
+    /**
+     * @param seed  the planner whose plan is returned unless the beam finds a better one.
+     * @param width the number of nodes kept after every step.
+     */
+    public BeamSearchPlanner(ActionPlanner seed, int width) {
+        if (width < 1) {
+            throw new IllegalArgumentException("width must be at least 1");
+        }
+        this.seed = seed;
+        this.width = width;
+    }
+
+    @Override
+    public List<Long> decideActions(GameRoundServerMessage msg, int maxActionsHint) {
+        List<Long> greedy = seed.decideActions(msg, maxActionsHint);
+        RoundModel m = model.load(msg);
+        int cap = Math.max(0, Math.min(maxActionsHint, m.actionCount));
+        ensureCapacity(m, cap);
+
+        int bestLength = Math.min(m.toPlan(greedy, bestPlan), cap);
+        long bestScore = simulator.evaluate(bestPlan, bestLength);
+
+        int length = search(m, cap);
+        if (length >= 0) {
+            long s = simulator.evaluate(plan, length);
+            if (s > bestScore) {
+                System.arraycopy(plan, 0, bestPlan, 0, length);
+                bestScore = s;
+                bestLength = length;
+            }
+        }
+        lastScore = bestScore;
+        return m.toActionIds(bestPlan, bestLength);
+    }
+
+    /**
+     * @return the score of the plan returned by the last call, see {@link RoundModel#score(FixedValues)}.
+     */
+    public long getLastScore() {
+        return lastScore;
+    }
+
+    /**
+     * @return the number of children evaluated by the last call.
+     */
+    public long getLastChildren() {
+        return lastChildren;
+    }
+
+    /**
+     * Runs the beam and writes the best finished plan to {@link #plan}.
+     *
+     * @return the length of the plan, or -1 if every plan dies.
+     */
+    private int search(RoundModel m, int cap) {
+        int n = m.actionCount;
+        lastChildren = 0;
+        if (m.start.isDead()) {
+            return -1;
+        }
+
+        Layer cur = layers[0];
+        cur.count = 1;
+        cur.set(0, m.start);
+        long pending = 0;
+        for (int e = 0; e < m.effectCount; e++) {
+            if (m.effectStep[e] >= 1) pending += effectHarm[e];
+        }
+        cur.pending[0] = pending;
+        cur.key[0] = 0L;
+        cur.blockedKey[0] = 0L;
+        for (int w = 0; w < usedWords; w++) cur.used[w] = 0L;
+        for (int w = 0; w < blockedWords; w++) cur.blocked[w] = 0L;
+
+        long bestScore = finish(m, cur, 0, 0);
+        int bestStep = bestScore == RoundModel.DEAD_SCORE ? -1 : 0;
+        int bestNode = 0;
+
+        for (int s = 1; s <= cap && cur.count > 0; s++) {
+            // Extend every node with every unused action, merging children that end in the same state
+            childCount = 0;
+            seen.clear();
+            for (int i = 0; i < cur.count; i++) {
+                for (int a = 0; a < n; a++) {
+                    if ((cur.used[i * usedWords + (a >>> 6)] & (1L << a)) != 0) continue;
+                    extend(m, cur, i, a, s);
+                }
+            }
+            lastChildren += childCount;
+
+            for (int k = 0; k < childCount; k++) childOrder[k] = k;
+            IndexSort.sort(childOrder, 0, childCount, childRank, null);
+            int kept = Math.min(width, childCount);
+
+            Layer next = layers[s & 1];
+            for (int j = 0; j < kept; j++) {
+                int c = childOrder[j];
+                int p = childParent[c];
+                int a = childAction[c];
+                next.hull[j] = childHull[c];
+                next.maxHull[j] = childMaxHull[c];
+                next.crew[j] = childCrew[c];
+                next.maxCrew[j] = childMaxCrew[c];
+                next.pending[j] = childPending[c];
+                next.key[j] = cur.key[p] ^ actionKey[a];
+                System.arraycopy(cur.used, p * usedWords, next.used, j * usedWords, usedWords);
+                next.used[j * usedWords + (a >>> 6)] |= 1L << a;
+                System.arraycopy(cur.blocked, p * blockedWords, next.blocked, j * blockedWords, blockedWords);
+                int e = childBlocks[c];
+                next.blockedKey[j] = cur.blockedKey[p];
+                if (e >= 0) {
+                    next.blocked[j * blockedWords + (e >>> 6)] |= 1L << e;
+                    next.blockedKey[j] ^= effectKey[e];
+                }
+                parent[s * width + j] = p;
+                choice[s * width + j] = a;
+            }
+            next.count = kept;
+            cur = next;
+
+            for (int j = 0; j < kept; j++) {
+                long f = finish(m, cur, j, s);
+                if (f > bestScore) {
+                    bestScore = f;
+                    bestStep = s;
+                    bestNode = j;
+                }
+            }
+        }
+        if (bestStep < 0) {
+            return -1;
+        }
+
+        for (int s = bestStep, j = bestNode; s >= 1; s--) {
+            plan[s - 1] = choice[s * width + j];
+            j = parent[s * width + j];
+        }
+        return bestStep;
+    }
+
+    /**
+     * Adds the child of node i that takes action a at step s, unless it dies.
+     */
+    private void extend(RoundModel m, Layer cur, int i, int a, int s) {
+        values.set(cur.hull[i], cur.maxHull[i], cur.crew[i], cur.maxCrew[i]);
+        m.addAction(values, a);
+        if (values.isDead()) {
+            return;
+        }
+        long pending = cur.pending[i];
+
+        // Only a blocker at or before the effect's step counts
+        int blocks = -1;
+        int effect = m.actionEffect[a];
+        if (effect >= 0 && m.effectStep[effect] >= s && !isBlocked(cur, i, effect)) {
+            blocks = effect;
+            pending -= effectHarm[effect];
+        }
+        if (s <= m.maxEffectStep) {
+            for (int k = m.stepStart[s], end = m.stepStart[s + 1]; k < end; k++) {
+                int e = m.stepEffects[k];
+                if (e != blocks && !isBlocked(cur, i, e)) {
+                    m.addEffect(values, e);
+                    pending -= effectHarm[e];
+                    if (values.isDead()) {
+                        return;
+                    }
+                }
+            }
+        }
+
+        long rank = pending - RoundModel.score(values);
+        long blockedKey = blocks >= 0 ? cur.blockedKey[i] ^ effectKey[blocks] : cur.blockedKey[i];
+        long key = mix(cur.key[i] ^ actionKey[a]) ^ mix(blockedKey + mix(values.getHullStrength()
+                + mix(values.getCrewHealth() + mix(values.getMaxHullStrength() + mix(values.getMaxCrewHealth())))));
+        int c = seen.get(key, -1);
+        if (c >= 0 && isSameState(cur, c, i, a, blocks)) {
+            if (rank >= childRank[c]) {
+                return;
+            }
+        } else {
+            // A key shared by a different state keeps pointing at the first one; this child just is not merged
+            if (c < 0) {
+                seen.put(key, childCount);
+            }
+            c = childCount++;
+        }
+        childParent[c] = i;
+        childAction[c] = a;
+        childHull[c] = values.getHullStrength();
+        childMaxHull[c] = values.getMaxHullStrength();
+        childCrew[c] = values.getCrewHealth();
+        childMaxCrew[c] = values.getMaxCrewHealth();
+        childPending[c] = pending;
+        childRank[c] = rank;
+        childBlocks[c] = blocks;
+    }
+
+    /**
+     * Scores node j as a finished plan of s steps, applying the unblocked effects after step s.
+     */
+    private long finish(RoundModel m, Layer layer, int j, int s) {
+        values.set(layer.hull[j], layer.maxHull[j], layer.crew[j], layer.maxCrew[j]);
+        for (int step = s + 1; step <= m.maxEffectStep; step++) {
+            for (int k = m.stepStart[step], end = m.stepStart[step + 1]; k < end; k++) {
+                int e = m.stepEffects[k];
+                if (!isBlocked(layer, j, e)) {
+                    m.addEffect(values, e);
+                    if (values.isDead()) {
+                        return RoundModel.DEAD_SCORE;
+                    }
+                }
+            }
+        }
+        return RoundModel.score(values);
+    }
+
+    /**
+     * @return whether child c holds the same values, used actions and blocked effects as the child of node i
+     * that takes action a, blocks effect blocks and ends in {@link #values}.
+     */
+    private boolean isSameState(Layer cur, int c, int i, int a, int blocks) {
+        if (childHull[c] != values.getHullStrength() || childCrew[c] != values.getCrewHealth()
+                || childMaxHull[c] != values.getMaxHullStrength() || childMaxCrew[c] != values.getMaxCrewHealth()) {
+            return false;
+        }
+        int p = childParent[c];
+        int pa = childAction[c];
+        for (int w = 0; w < usedWords; w++) {
+            long used = cur.used[i * usedWords + w] | ((a >>> 6) == w ? 1L << a : 0L);
+            long other = cur.used[p * usedWords + w] | ((pa >>> 6) == w ? 1L << pa : 0L);
+            if (used != other) {
+                return false;
+            }
+        }
+        int pb = childBlocks[c];
+        for (int w = 0; w < blockedWords; w++) {
+            long blocked = cur.blocked[i * blockedWords + w] | (blocks >= 0 && (blocks >>> 6) == w ? 1L << blocks : 0L);
+            long other = cur.blocked[p * blockedWords + w] | (pb >= 0 && (pb >>> 6) == w ? 1L << pb : 0L);
+            if (blocked != other) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Spreads the bits of a value over the whole key, see {@link SplittableRandom}.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private boolean isBlocked(Layer layer, int node, int effect) {
+        return (layer.blocked[node * blockedWords + (effect >>> 6)] & (1L << effect)) != 0;
+    }
+
+    private void ensureCapacity(RoundModel m, int cap) {
+        int n = m.actionCount;
+        usedWords = Math.max(1, (n + 63) >>> 6);
+        blockedWords = Math.max(1, (m.effectCount + 63) >>> 6);
+        for (Layer layer : layers) {
+            layer.ensureCapacity(width, usedWords, blockedWords);
+        }
+        if (actionKey.length < n) {
+            actionKey = new long[n];
+            plan = new int[n];
+            bestPlan = new int[n];
+            // Fixed keys, so equal used sets hash equally in every round
+            SplittableRandom random = new SplittableRandom(n);
+            for (int a = 0; a < n; a++) {
+                actionKey[a] = random.nextLong();
+            }
+        }
+        if (effectHarm.length < m.effectCount) {
+            effectHarm = new long[m.effectCount];
+            effectKey = new long[m.effectCount];
+            SplittableRandom random = new SplittableRandom(~m.effectCount);
+            for (int e = 0; e < m.effectCount; e++) {
+                effectKey[e] = random.nextLong();
+            }
+        }
+        for (int e = 0; e < m.effectCount; e++) {
+            effectHarm[e] = Math.max(0L, -m.effectHull[e]) + Math.max(0L, -m.effectCrew[e]);
+        }
+        int children = width * n;
+        if (childParent.length < children) {
+            childParent = new int[children];
+            childAction = new int[children];
+            childHull = new long[children];
+            childMaxHull = new long[children];
+            childCrew = new long[children];
+            childMaxCrew = new long[children];
+            childPending = new long[children];
+            childRank = new long[children];
+            childBlocks = new int[children];
+            childOrder = new int[children];
+        }
+        if (parent.length < (cap + 1) * width) {
+            parent = new int[(cap + 1) * width];
+            choice = new int[(cap + 1) * width];
+        }
+    }
+
+    /**
+     * The nodes of one step, by index.
+     */
+    private static final class Layer {
+        int count;
+        long[] hull = new long[0];
+        long[] maxHull = new long[0];
+        long[] crew = new long[0];
+        long[] maxCrew = new long[0];
+        // Harm of the effects after this step that are not blocked
+        long[] pending = new long[0];
+        // Hashes of the used actions and of the blocked effects
+        long[] key = new long[0];
+        long[] blockedKey = new long[0];
+        long[] used = new long[0];
+        long[] blocked = new long[0];
+
+        void set(int j, FixedValues v) {
+            hull[j] = v.getHullStrength();
+            maxHull[j] = v.getMaxHullStrength();
+            crew[j] = v.getCrewHealth();
+            maxCrew[j] = v.getMaxCrewHealth();
+        }
+
+        void ensureCapacity(int width, int usedWords, int blockedWords) {
+            if (hull.length < width) {
+                hull = new long[width];
+                maxHull = new long[width];
+                crew = new long[width];
+                maxCrew = new long[width];
+                pending = new long[width];
+                key = new long[width];
+                blockedKey = new long[width];
+            }
+            if (used.length < width * usedWords) {
+                used = new long[width * usedWords];
+            }
+            if (blocked.length < width * blockedWords) {
+                blocked = new long[width * blockedWords];
+            }
+        }
+    }
+}
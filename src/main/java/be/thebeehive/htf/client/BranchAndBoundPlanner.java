@@ -0,0 +1,245 @@
+package be.thebeehive.htf.client;
+
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Exhaustive search over ordered action subsets of up to maxActionsHint actions.
+ * <p>
+ * The greedy plan of {@link DecisionEngine} is used as the first incumbent. A depth-first search then
+ * places one action per step, simulating incrementally with the {@link RoundModel} rules, and prunes every
+ * branch whose admissible upper bound cannot beat the incumbent. The bound assumes every remaining slot picks
+ * the unused action with the largest positive delta per metric and every later effect only helps, which can
+ * never be exceeded because clamping at zero never raises a value above its running sum of positive deltas.
+ * <p>
+ * The search stops after {@code maxNodes} nodes; {@link #isLastSearchComplete()} tells whether the returned
+ * plan was proven optimal.
+ */
+public class BranchAndBoundPlanner implements ActionPlanner {
+
+    public static final long DEFAULT_MAX_NODES = 2_000_000L;
+
+    private final ActionPlanner seed;
+    private final long maxNodes;
+
+    private RoundModel model;
+    private int cap;
+    private int[] childOrder;
+    private int[][] positiveOrder;
+    private long[][] positiveEffectAfter;
+    private boolean[] used;
+    private int[] firstBlocker;
+    private FixedValues[] states;
+    private FixedValues scratch;
+    private int[] plan;
+    private int[] bestPlan;
+    private int bestLength;
+    private long bestScore;
+    private long nodes;
+    private boolean complete;
+
+    public BranchAndBoundPlanner() {
+        this(new DecisionEngine(), DEFAULT_MAX_NODES);
+    }
+
+    /**
+     * @param seed     the planner providing the initial incumbent.
+     * @param maxNodes the maximum number of search nodes to expand per round.
+     */
+    public BranchAndBoundPlanner(ActionPlanner seed, long maxNodes) {
+        this.seed = seed;
+        this.maxNodes = maxNodes;
+    }
+
+    @Override
+    public List<Long> decideActions(GameRoundServerMessage msg, int maxActionsHint) {
+        List<Long> greedy = seed.decideActions(msg, maxActionsHint);
+        this.model = RoundModel.of(msg);
+        this.cap = Math.min(maxActionsHint, model.actionCount);
+        prepare();
+
+        bestLength = model.toPlan(greedy, bestPlan);
+        bestLength = Math.min(bestLength, cap);
+        bestScore = model.evaluate(bestPlan, bestLength);
+        nodes = 0;
+        complete = true;
+
+        search(0, !model.start.isDead());
+        return model.toActionIds(bestPlan, bestLength);
+    }
+
+    /**
+     * @return true if the last call explored the full search space, so its plan is optimal.
+     */
+    public boolean isLastSearchComplete() {
+        return complete;
+    }
+
+    /**
+     * @return the number of nodes expanded by the last call.
+     */
+    public long getLastNodeCount() {
+        return nodes;
+    }
+
+    /**
+     * @return the score of the plan returned by the last call, see {@link RoundModel#score(FixedValues)}.
+     */
+    public long getLastScore() {
+        return bestScore;
+    }
+
+    private void prepare() {
+        RoundModel m = model;
+        int n = m.actionCount;
+        used = new boolean[n];
+        firstBlocker = new int[m.effectCount];
+        Arrays.fill(firstBlocker, -1);
+        plan = new int[Math.max(1, cap)];
+        bestPlan = new int[Math.max(n, 1)];
+        states = new FixedValues[cap + 1];
+        for (int i = 0; i <= cap; i++) {
+            states[i] = new FixedValues();
+        }
+        states[0].set(m.start);
+        scratch = new FixedValues();
+
+        // Try blockers of early effects first, then the most beneficial actions, to find good incumbents fast
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        Arrays.sort(order, Comparator.comparingInt((Integer a) -> m.actionEffect[a] >= 0 ? m.effectStep[m.actionEffect[a]] : Integer.MAX_VALUE)
+                .thenComparing(Comparator.comparingLong((Integer a) -> m.actionHull[a] + m.actionCrew[a]).reversed()));
+        childOrder = new int[n];
+        for (int i = 0; i < n; i++) childOrder[i] = order[i];
+
+        long[][] deltas = {m.actionHull, m.actionMaxHull, m.actionCrew, m.actionMaxCrew};
+        positiveOrder = new int[4][];
+        for (int k = 0; k < 4; k++) {
+            long[] d = deltas[k];
+            Arrays.sort(order, Comparator.comparingLong((Integer a) -> d[a]).reversed());
+            positiveOrder[k] = new int[n];
+            for (int i = 0; i < n; i++) positiveOrder[k][i] = order[i];
+        }
+
+        // positiveEffectAfter[k][d] = sum of positive deltas of effects with a step after d
+        long[][] effectDeltas = {m.effectHull, m.effectMaxHull, m.effectCrew, m.effectMaxCrew};
+        positiveEffectAfter = new long[4][m.maxEffectStep + 2];
+        for (int k = 0; k < 4; k++) {
+            for (int e = 0; e < m.effectCount; e++) {
+                int step = Math.max(0, m.effectStep[e]);
+                if (effectDeltas[k][e] > 0) {
+                    for (int d = 0; d < step && d < positiveEffectAfter[k].length; d++) {
+                        positiveEffectAfter[k][d] += effectDeltas[k][e];
+                    }
+                }
+            }
+        }
+    }
+
+    private void search(int depth, boolean alive) {
+        if (!alive) {
+            return;
+        }
+        if (++nodes > maxNodes) {
+            complete = false;
+            return;
+        }
+
+        long stopScore = finish(depth);
+        if (stopScore > bestScore) {
+            bestScore = stopScore;
+            bestLength = depth;
+            System.arraycopy(plan, 0, bestPlan, 0, depth);
+        }
+        if (depth >= cap || upperBound(depth) <= bestScore) {
+            return;
+        }
+
+        RoundModel m = model;
+        int step = depth + 1;
+        FixedValues next = states[depth + 1];
+        for (int i = 0; i < m.actionCount; i++) {
+            int a = childOrder[i];
+            if (used[a]) continue;
+
+            used[a] = true;
+            plan[depth] = a;
+            int effect = m.actionEffect[a];
+            boolean newBlocker = effect >= 0 && firstBlocker[effect] < 0;
+            if (newBlocker) firstBlocker[effect] = depth;
+
+            next.set(states[depth]);
+            m.addAction(next, a);
+            boolean childAlive = !next.isDead();
+            if (step <= m.maxEffectStep) {
+                for (int k = m.stepStart[step], end = m.stepStart[step + 1]; k < end; k++) {
+                    int e = m.stepEffects[k];
+                    if (!isBlocked(e)) {
+                        m.addEffect(next, e);
+                        childAlive &= !next.isDead();
+                    }
+                }
+            }
+
+            search(depth + 1, childAlive);
+
+            if (newBlocker) firstBlocker[effect] = -1;
+            used[a] = false;
+            if (!complete) return;
+        }
+    }
+
+    private boolean isBlocked(int effect) {
+        int idx = firstBlocker[effect];
+        return idx >= 0 && idx + 1 <= model.effectStep[effect];
+    }
+
+    /**
+     * Scores the plan that stops at the given depth: only the effects of later steps remain.
+     */
+    private long finish(int depth) {
+        RoundModel m = model;
+        FixedValues v = scratch.set(states[depth]);
+        boolean alive = true;
+        if (depth + 1 <= m.maxEffectStep) {
+            for (int k = m.stepStart[depth + 1], end = m.stepStart[m.maxEffectStep + 1]; k < end; k++) {
+                int e = m.stepEffects[k];
+                if (!isBlocked(e)) {
+                    m.addEffect(v, e);
+                    alive &= !v.isDead();
+                }
+            }
+        }
+        return alive ? RoundModel.score(v) : RoundModel.DEAD_SCORE;
+    }
+
+    private long upperBound(int depth) {
+        FixedValues v = states[depth];
+        int remaining = cap - depth;
+        int after = Math.min(depth, positiveEffectAfter[0].length - 1);
+
+        long maxHull = v.getMaxHullStrength() + topPositive(1, remaining) + positiveEffectAfter[1][after];
+        long maxCrew = v.getMaxCrewHealth() + topPositive(3, remaining) + positiveEffectAfter[3][after];
+        long hull = Math.min(maxHull, v.getHullStrength() + topPositive(0, remaining) + positiveEffectAfter[0][after]);
+        long crew = Math.min(maxCrew, v.getCrewHealth() + topPositive(2, remaining) + positiveEffectAfter[2][after]);
+        return hull + crew + (maxHull + maxCrew) / 4;
+    }
+
+    private long topPositive(int metric, int count) {
+        long[] d = metric == 0 ? model.actionHull : metric == 1 ? model.actionMaxHull
+                : metric == 2 ? model.actionCrew : model.actionMaxCrew;
+        int[] order = positiveOrder[metric];
+        long sum = 0;
+        for (int i = 0; i < order.length && count > 0; i++) {
+            int a = order[i];
+            if (used[a]) continue;
+            if (d[a] <= 0) break;
+            sum += d[a];
+            count--;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,243 @@
+package be.thebeehive.htf.client;
+
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers the plans of another planner by the situation they were decided for.
+ * <p>
+ * A round is keyed by its fingerprint: the cap, our values and every effect and action with their values,
+ * steps and couplings in message order, but without their ids, which the server changes every round. A round
+ * with the same fingerprint as an earlier one gets the plan of that round mapped onto its own action ids,
+ * without asking the planner again. Fingerprints are compared in full, so a hash collision never returns a
+ * wrong plan.
+ * <p>
+ * Building and comparing a fingerprint costs about as much as the greedy {@link DecisionEngine}, so the cache
+ * pays off in front of the expensive planners such as {@link BranchAndBoundPlanner} or {@link AnytimePlanner}.
+ * <p>
+ * The cache holds at most {@code capacity} plans and evicts the least recently used one. One instance can be
+ * shared by many sessions; the fingerprint is built in scratch state of the calling thread and only the cache
+ * lookup is synchronized, so the planner behind it must be thread-safe as well when shared.
+ */
+public class CachingPlanner implements ActionPlanner {
+
+    public static final int DEFAULT_CAPACITY = 4_096;
+
+    private final ActionPlanner planner;
+    private final Map<Fingerprint, int[]> plans;
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    // Guarded by plans
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Caches the proven optimal plans of a {@link BranchAndBoundPlanner}, which must not be shared by threads.
+     */
+    public CachingPlanner() {
+        this(new BranchAndBoundPlanner(), DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param planner  the planner deciding the rounds that are not cached yet.
+     * @param capacity the maximum number of plans to remember.
+     */
+    public CachingPlanner(ActionPlanner planner, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        this.planner = planner;
+        this.plans = new LinkedHashMap<Fingerprint, int[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Fingerprint, int[]> eldest) {
+                if (size() > capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public List<Long> decideActions(GameRoundServerMessage msg, int maxActionsHint) {
+        Scratch s = scratch.get();
+        RoundModel model = s.model.load(msg);
+        s.probe.load(model, maxActionsHint);
+
+        int[] plan;
+        synchronized (plans) {
+            plan = plans.get(s.probe);
+            if (plan != null) {
+                hits++;
+            } else {
+                misses++;
+            }
+        }
+        if (plan != null) {
+            return model.toActionIds(plan, plan.length);
+        }
+
+        List<Long> ids = planner.decideActions(msg, maxActionsHint);
+        int[] decided = new int[ids.size()];
+        int length = model.toPlan(ids, decided);
+        if (length == ids.size()) {
+            // Only plans that consist of actions of this round can be replayed
+            synchronized (plans) {
+                plans.put(s.probe.copy(), decided);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * @return the number of rounds answered from the cache.
+     */
+    public long getHits() {
+        synchronized (plans) {
+            return hits;
+        }
+    }
+
+    /**
+     * @return the number of rounds that were decided by the planner.
+     */
+    public long getMisses() {
+        synchronized (plans) {
+            return misses;
+        }
+    }
+
+    /**
+     * @return the number of plans removed to make room for newer ones.
+     */
+    public long getEvictions() {
+        synchronized (plans) {
+            return evictions;
+        }
+    }
+
+    /**
+     * @return the number of plans in the cache.
+     */
+    public int size() {
+        synchronized (plans) {
+            return plans.size();
+        }
+    }
+
+    /**
+     * Forgets every plan. The counters are kept.
+     */
+    public void clear() {
+        synchronized (plans) {
+            plans.clear();
+        }
+    }
+
+    @Override
+    public String toString() {
+        synchronized (plans) {
+            long total = hits + misses;
+            return String.format("hits %d, misses %d (%.1f%% hit), evictions %d, size %d",
+                    hits, misses, total == 0 ? 0.0 : 100.0 * hits / total, evictions, plans.size());
+        }
+    }
+
+    private static final class Scratch {
+        final RoundModel model = new RoundModel();
+        final Fingerprint probe = new Fingerprint();
+    }
+
+    /**
+     * The id-free contents of a round as one array of longs.
+     */
+    static final class Fingerprint {
+
+        private long[] values;
+        private int length;
+        private int hash;
+
+        Fingerprint() {
+            this.values = new long[0];
+        }
+
+        private Fingerprint(long[] values, int hash) {
+            this.values = values;
+            this.length = values.length;
+            this.hash = hash;
+        }
+
+        void load(RoundModel m, int cap) {
+            int size = 8 + 5 * m.effectCount + 5 * m.actionCount;
+            if (values.length < size) {
+                values = new long[size];
+            }
+            int i = 0;
+            values[i++] = cap;
+            values[i++] = m.start.getHullStrength();
+            values[i++] = m.start.getMaxHullStrength();
+            values[i++] = m.start.getCrewHealth();
+            values[i++] = m.start.getMaxCrewHealth();
+            values[i++] = m.effectCount;
+            values[i++] = m.actionCount;
+            values[i++] = m.maxEffectStep;
+            for (int e = 0; e < m.effectCount; e++) {
+                values[i++] = m.effectStep[e];
+                values[i++] = m.effectHull[e];
+                values[i++] = m.effectMaxHull[e];
+                values[i++] = m.effectCrew[e];
+                values[i++] = m.effectMaxCrew[e];
+            }
+            for (int a = 0; a < m.actionCount; a++) {
+                values[i++] = m.actionEffect[a];
+                values[i++] = m.actionHull[a];
+                values[i++] = m.actionMaxHull[a];
+                values[i++] = m.actionCrew[a];
+                values[i++] = m.actionMaxCrew[a];
+            }
+            length = i;
+
+            long h = 0;
+            for (int k = 0; k < length; k++) {
+                h = (h + values[k]) * 0x9E3779B97F4A7C15L;
+            }
+            hash = (int) (h ^ (h >>> 32));
+        }
+
+        Fingerprint copy() {
+            long[] copy = new long[length];
+            System.arraycopy(values, 0, copy, 0, length);
+            return new Fingerprint(copy, hash);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Fingerprint)) {
+                return false;
+            }
+            Fingerprint other = (Fingerprint) obj;
+            if (hash != other.hash || length != other.length) {
+                return false;
+            }
+            for (int k = 0; k < length; k++) {
+                if (values[k] != other.values[k]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package be.thebeehive.htf.client;
+
+/**
+ * The order in which the search planners consider actions when they cannot consider them all.
+ * <p>
+ * The actions of the seed plan come first, in plan order, so the search always contains the plan it has to
+ * beat. The other actions follow by their gain: what they add to hull and crew, a quarter of what they add to
+ * the maxima, as in {@link RoundModel#score(FixedValues)}, plus the damage of the effect they block.
+ */
+final class CandidateOrder {
+
+    private CandidateOrder() {
+
+    }
+
+    /**
+     * Writes every action of the round to candidates, best first.
+     *
+     * @param m          the round.
+     * @param seedPlan   the plan of the seed planner.
+     * @param seedLength the length of the seed plan.
+     * @param candidates receives the action indexes, at least {@code m.actionCount} long.
+     * @param key        scratch space indexed by action, at least {@code m.actionCount} long.
+     */
+    static void sort(RoundModel m, int[] seedPlan, int seedLength, int[] candidates, long[] key) {
+        int n = m.actionCount;
+        for (int a = 0; a < n; a++) {
+            candidates[a] = a;
+            key[a] = -gain(m, a);
+        }
+        for (int i = 0; i < seedLength; i++) {
+            key[seedPlan[i]] = Long.MIN_VALUE + i;
+        }
+        IndexSort.sort(candidates, 0, n, key, null);
+    }
+
+    /**
+     * @return the gain of an action, ignoring the state it is applied to.
+     */
+    static long gain(RoundModel m, int a) {
+        long gain = m.actionHull[a] + m.actionCrew[a] + (m.actionMaxHull[a] + m.actionMaxCrew[a]) / 4;
+        int e = m.actionEffect[a];
+        if (e >= 0) {
+            gain += Math.max(0L, -m.effectHull[e]) + Math.max(0L, -m.effectCrew[e]);
+        }
+        return gain;
+    }
+}
@@ -0,0 +1,115 @@
+package be.thebeehive.htf.client;
+
+/**
+ * Exact solver for unit-length jobs with deadlines on a fixed number of slots.
+ * <p>
+ * Blocking an effect is such a job: one action slot, which must be at or before the effect's step.
+ * The feasible sets of jobs form a matroid, so taking the jobs by descending weight and keeping every job
+ * that still fits yields a schedule of maximum total weight; this is the same optimum as a maximum-weight
+ * matching between jobs and slots. A job is placed in the latest free slot before its deadline, which keeps
+ * the early slots open for jobs with tighter deadlines. Free slots are found with a union-find over the
+ * slots, so scheduling n jobs costs O(n log n) for the sort and nearly O(1) per job afterwards.
+ * <p>
+ * Slots are numbered from 1. Jobs can be added in several rounds between {@link #reset(int)} calls, e.g. a
+ * second, lower priority class of jobs after the first one, which keeps each round optimal given the earlier
+ * ones. An instance reuses its arrays and must not be used by two threads at the same time.
+ */
+public final class DeadlineScheduler {
+
+    // parent[s] leads to the latest free slot <= s, slot 0 means none is left
+    private int[] parent = new int[1];
+    private int slots;
+    private int used;
+
+    /**
+     * Frees all slots.
+     *
+     * @param slots the number of slots.
+     */
+    public void reset(int slots) {
+        if (parent.length < slots + 1) {
+            parent = new int[slots + 1];
+        }
+        for (int s = 0; s <= slots; s++) {
+            parent[s] = s;
+        }
+        this.slots = slots;
+        this.used = 0;
+    }
+
+    /**
+     * Takes the latest free slot at or before a deadline.
+     *
+     * @param deadline the last slot the job may use.
+     * @return the slot, or -1 if every slot up to the deadline is taken.
+     */
+    public int place(int deadline) {
+        int slot = find(Math.min(deadline, slots));
+        if (slot <= 0) {
+            return -1;
+        }
+        parent[slot] = slot - 1;
+        used++;
+        return slot;
+    }
+
+    /**
+     * Schedules the heaviest feasible subset of jobs into the free slots.
+     *
+     * @param jobs     the jobs to consider, reordered by descending weight, then ascending deadline.
+     * @param count    the number of jobs.
+     * @param deadline the deadline of every job, jobs with a deadline below 1 are never placed.
+     * @param weight   the weight of every job, jobs with a weight below 0 are never placed.
+     * @param limit    the maximum number of slots this call may take.
+     * @param slotOut  receives the slot of every considered job, or -1.
+     * @param sortKey  scratch space indexed by job.
+     * @param tieKey   scratch space indexed by job.
+     * @return the number of placed jobs.
+     */
+    public int schedule(int[] jobs, int count, int[] deadline, long[] weight, int limit, int[] slotOut,
+                        long[] sortKey, long[] tieKey) {
+        for (int k = 0; k < count; k++) {
+            int j = jobs[k];
+            sortKey[j] = -weight[j];
+            tieKey[j] = deadline[j];
+        }
+        IndexSort.sort(jobs, 0, count, sortKey, tieKey);
+
+        int placed = 0;
+        for (int k = 0; k < count; k++) {
+            int j = jobs[k];
+            slotOut[j] = -1;
+            if (placed < limit && used < slots && weight[j] >= 0 && deadline[j] >= 1) {
+                int slot = place(deadline[j]);
+                if (slot > 0) {
+                    slotOut[j] = slot;
+                    placed++;
+                }
+            }
+        }
+        return placed;
+    }
+
+    /**
+     * @return the number of taken slots.
+     */
+    public int getUsed() {
+        return used;
+    }
+
+    /**
+     * @return the number of slots.
+     */
+    public int getSlots() {
+        return slots;
+    }
+
+    private int find(int s) {
+        while (parent[s] != s) {
+            // Path halving
+            parent[s] = parent[parent[s]];
+            s = parent[s];
+        }
+        return s;
+    }
+}
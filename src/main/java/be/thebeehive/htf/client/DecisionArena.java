@@ -0,0 +1,95 @@
+package be.thebeehive.htf.client;
+
+/**
+ * Reusable scratch state for {@link DecisionEngine}.
+ * <p>
+ * Holds the compiled {@link RoundModel} and every per-round array of the greedy passes. Arrays are only
+ * replaced when a round is bigger than any round seen before, so once the arena reached the high-water mark
+ * a round is decided without allocating. An arena must not be used by two threads at the same time.
+ */
+public final class DecisionArena {
+
+    final RoundModel model = new RoundModel();
+    final RoundModel.Simulator simulator = model.newSimulator();
+    final FixedValues current = new FixedValues();
+    final FixedValues scratch = new FixedValues();
+    final DeadlineScheduler scheduler = new DeadlineScheduler();
+
+    // Per effect
+    int[] criticalEffects = new int[0];
+    int[] normalEffects = new int[0];
+    int[] effectDeadline = new int[0];
+    long[] effectWeight = new long[0];
+    int[] effectBlocker = new int[0];
+    int[] effectSlot = new int[0];
+    // Sort keys of the scheduler
+    long[] scheduleKey = new long[0];
+    long[] scheduleTieKey = new long[0];
+
+    // Per action
+    long[] selfHarm = new long[0];
+    long[] benefit = new long[0];
+    long[] healing = new long[0];
+    long[] overall = new long[0];
+    boolean[] chosenFlag = new boolean[0];
+    int[] chosen = new int[0];
+    int[] candidates = new int[0];
+    // Blocker pinned to slot s, or -1; indexed from 1
+    int[] slotAction = new int[1];
+    int[] healingOrder = new int[0];
+    int[] other = new int[0];
+    long[] positionKey = new long[0];
+    int[] ordered = new int[0];
+    long[] orderedIds = new long[0];
+
+    void ensureCapacity(int actions, int effects) {
+        if (criticalEffects.length < effects) {
+            criticalEffects = new int[effects];
+            normalEffects = new int[effects];
+            effectDeadline = new int[effects];
+            effectWeight = new long[effects];
+            effectBlocker = new int[effects];
+            effectSlot = new int[effects];
+            scheduleKey = new long[effects];
+            scheduleTieKey = new long[effects];
+        }
+        if (selfHarm.length < actions) {
+            selfHarm = new long[actions];
+            benefit = new long[actions];
+            healing = new long[actions];
+            overall = new long[actions];
+            chosenFlag = new boolean[actions];
+            chosen = new int[actions];
+            candidates = new int[actions];
+            slotAction = new int[actions + 1];
+            healingOrder = new int[actions];
+            other = new int[actions];
+            positionKey = new long[actions];
+            ordered = new int[actions];
+            orderedIds = new long[actions];
+        }
+    }
+
+    /**
+     * @return the model of the last decided round.
+     */
+    public RoundModel getModel() {
+        return model;
+    }
+
+    /**
+     * @return the action indexes of the last decision, see {@link DecisionEngine#decideActions(
+     *         be.thebeehive.htf.library.protocol.server.GameRoundServerMessage, int, DecisionArena)}.
+     */
+    public int[] getPlan() {
+        return ordered;
+    }
+
+    /**
+     * @return the action ids of the last decision, see {@link DecisionEngine#decideActions(
+     *         be.thebeehive.htf.library.protocol.server.GameRoundServerMessage, int, DecisionArena)}.
+     */
+    public long[] getActionIds() {
+        return orderedIds;
+    }
+}
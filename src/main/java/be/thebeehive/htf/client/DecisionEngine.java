@@ -1,406 +1,361 @@
 package be.thebeehive.htf.client;
 
+import be.thebeehive.htf.library.GameRoundFrame;
 import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
-import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Action;
-import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Effect;
-import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Values;
 
-import java.math.BigDecimal;
 import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
 
-import static be.thebeehive.htf.client.ClientUtils.isDead;
-import static be.thebeehive.htf.client.ClientUtils.sumValues;
+public class DecisionEngine implements ActionPlanner {
 
-public class DecisionEngine {
+    // Thresholds as whole percentages of the max hull strength / crew health
+    private static final long CRITICAL_PERCENT = 30;
+    private static final long VERY_CRITICAL_PERCENT = 15;
+    private static final long WOULD_BE_CRITICAL_PERCENT = 45;
 
-    private Map<Long, Action> actionById = new HashMap<>();
-    private Map<Long, Long> actionToEffectId = new HashMap<>();
-    private Map<Long, Values> actionToValues = new HashMap<>();
-    private Map<Long, Effect> effectById = new HashMap<>();
+    // Arenas of the List-returning method, per thread so one engine can be shared by many sessions
+    private final ThreadLocal<DecisionArena> arenas = ThreadLocal.withInitial(DecisionArena::new);
 
+    /**
+     * Decides the actions of a round in an arena of the calling thread. The engine keeps no other state, so
+     * it can be shared by any number of threads.
+     */
+    @Override
     public List<Long> decideActions(GameRoundServerMessage msg, int maxActionsHint) {
-        List<Action> actions = msg.getActions();
-        List<Effect> effects = msg.getEffects();
-        Values start = cloneValues(msg.getOurSubmarine().getValues());
-
-        this.actionById.clear();
-        this.actionToEffectId.clear();
-        this.actionToValues.clear();
-        this.effectById.clear();
-
-        for (Effect e : effects) effectById.put(e.getId(), e);
-        Map<Long, List<Action>> actionsByEffect = new HashMap<>();
-        List<Action> freeActions = new ArrayList<>();
-        for (Action a : actions) {
-            actionById.put(a.getId(), a);
-            actionToEffectId.put(a.getId(), a.getEffectId());
-            actionToValues.put(a.getId(), a.getValues());
-            if (a.getEffectId() >= 0 && effectById.containsKey(a.getEffectId())) {
-                actionsByEffect.computeIfAbsent(a.getEffectId(), k -> new ArrayList<>()).add(a);
-            } else {
-                freeActions.add(a);
-            }
+        DecisionArena arena = arenas.get();
+        int length = decideActions(msg, maxActionsHint, arena);
+        long[] ids = arena.getActionIds();
+        List<Long> result = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            result.add(ids[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Decides the actions of a round using only the scratch state of the arena. Once the arena has seen a
+     * round of this size, no memory is allocated.
+     *
+     * @param msg            the current game round.
+     * @param maxActionsHint the maximum number of actions that may be selected.
+     * @param arena          the scratch state, receives the result in {@link DecisionArena#getActionIds()}
+     *                       and {@link DecisionArena#getPlan()}.
+     * @return the number of selected actions.
+     */
+    public int decideActions(GameRoundServerMessage msg, int maxActionsHint, DecisionArena arena) {
+        return decide(arena.model.load(msg), maxActionsHint, arena);
+    }
+
+    /**
+     * Decides the actions of a round decoded by {@link be.thebeehive.htf.library.GameRoundDecoder}, see
+     * {@link #decideActions(GameRoundServerMessage, int, DecisionArena)}.
+     *
+     * @param frame          the current game round.
+     * @param maxActionsHint the maximum number of actions that may be selected.
+     * @param arena          the scratch state, receives the result.
+     * @return the number of selected actions.
+     */
+    public int decideActions(GameRoundFrame frame, int maxActionsHint, DecisionArena arena) {
+        return decide(arena.model.load(frame), maxActionsHint, arena);
+    }
+
+    private int decide(RoundModel m, int maxActionsHint, DecisionArena arena) {
+        int n = m.actionCount;
+        arena.ensureCapacity(n, m.effectCount);
+        FixedValues start = m.start;
+
+        for (int a = 0; a < n; a++) {
+            arena.selfHarm[a] = actionSelfHarmScore(m.actionHull[a], m.actionCrew[a]);
+            arena.benefit[a] = actionBenefitScore(m.actionHull[a], m.actionMaxHull[a], m.actionCrew[a], m.actionMaxCrew[a]);
+            arena.healing[a] = healingScore(m.actionHull[a], m.actionCrew[a]);
+            arena.chosenFlag[a] = false;
         }
 
         // Calculate health percentage to determine if we're in critical state
         // Check BOTH hull strength and crew health independently
-        BigDecimal hullPercent = start.getMaxHullStrength().compareTo(BigDecimal.ZERO) > 0 ?
-                start.getHullStrength().divide(start.getMaxHullStrength(), 2, java.math.RoundingMode.HALF_UP) : 
-                BigDecimal.ZERO;
-        BigDecimal crewPercent = start.getMaxCrewHealth().compareTo(BigDecimal.ZERO) > 0 ?
-                start.getCrewHealth().divide(start.getMaxCrewHealth(), 2, java.math.RoundingMode.HALF_UP) : 
-                BigDecimal.ZERO;
-        
         // Critical if EITHER hull or crew is below 30% (balanced threshold)
-        boolean criticalHealth = hullPercent.compareTo(new BigDecimal("0.30")) < 0 || 
-                                 crewPercent.compareTo(new BigDecimal("0.30")) < 0;
-        
+        boolean criticalHealth = start.isBelow(CRITICAL_PERCENT);
+
         // Very critical if EITHER is below 15% (emergency!)
-        boolean veryCritical = hullPercent.compareTo(new BigDecimal("0.15")) < 0 || 
-                              crewPercent.compareTo(new BigDecimal("0.15")) < 0;
-
-        // Separate effects into critical and non-critical
-        List<Effect> criticalEffects = new ArrayList<>();
-        List<Effect> normalEffects = new ArrayList<>();
-        
-        for (Effect e : effects) {
-            Values testState = cloneValues(start);
-            testState = sumValues(testState, e.getValues());
-            if (isDead(testState) || wouldBeCritical(testState)) {
-                criticalEffects.add(e);
+        boolean veryCritical = start.isBelow(VERY_CRITICAL_PERCENT);
+
+        // Separate the effects we can block into critical and non-critical
+        int criticalCount = 0;
+        int normalCount = 0;
+
+        FixedValues testState = arena.scratch;
+        for (int e = 0; e < m.effectCount; e++) {
+            // The blocker that hurts us least; an action blocks one effect only, so effects never compete for it
+            int blocker = bestBlocker(m, arena, e);
+            arena.effectBlocker[e] = blocker;
+            if (blocker < 0) continue;
+
+            testState.set(start);
+            m.addEffect(testState, e);
+            arena.effectDeadline[e] = m.effectStep[e];
+            arena.effectWeight[e] = harmScore(m.effectHull[e], m.effectCrew[e]);
+            if (testState.isDead() || wouldBeCritical(testState)) {
+                arena.criticalEffects[criticalCount++] = e;
             } else {
-                normalEffects.add(e);
+                arena.normalEffects[normalCount++] = e;
             }
         }
 
-        // Sort critical effects by step first, then by damage
-        criticalEffects.sort(
-                Comparator.comparingInt(Effect::getStep)
-                        .thenComparing((Effect e) -> harmScore(e.getValues()), Comparator.reverseOrder())
-        );
-        
-        normalEffects.sort(
-                Comparator.comparingInt(Effect::getStep)
-                        .thenComparing((Effect e) -> harmScore(e.getValues()), Comparator.reverseOrder())
-        );
-
-        List<Action> chosen = new ArrayList<>();
-        Set<Long> blockedEffectIds = new HashSet<>();
-
-        // PRIORITY 1: Block all critical threats
-        for (Effect e : criticalEffects) {
-            List<Action> candidates = actionsByEffect.get(e.getId());
-            if (candidates == null || candidates.isEmpty()) continue;
-            
-            // Find the best action to block this effect (least self-harm, most benefit)
-            Action best = candidates.stream()
-                    .min(Comparator.comparing((Action a) -> actionSelfHarmScore(a.getValues()))
-                            .thenComparing((Action a) -> actionBenefitScore(a.getValues()), Comparator.reverseOrder()))
-                    .orElse(null);
-            if (best == null) continue;
-            
-            if (!chosen.contains(best)) {
-                chosen.add(best);
-                blockedEffectIds.add(e.getId());
-                if (chosen.size() >= maxActionsHint) break;
-            }
+        int[] chosen = arena.chosen;
+        boolean[] chosenFlag = arena.chosenFlag;
+        int chosenCount = 0;
+        // A plan never holds more actions than the round offers
+        int slots = Math.max(0, Math.min(maxActionsHint, n));
+        int[] slotAction = arena.slotAction;
+        for (int s = 1; s <= slots; s++) {
+            slotAction[s] = -1;
         }
 
+        // PRIORITY 1: Block as much critical harm as fits before the effects trigger
+        DeadlineScheduler scheduler = arena.scheduler;
+        scheduler.reset(slots);
+        scheduler.schedule(arena.criticalEffects, criticalCount, arena.effectDeadline, arena.effectWeight,
+                slots, arena.effectSlot, arena.scheduleKey, arena.scheduleTieKey);
+        chosenCount = pinBlockers(arena, arena.criticalEffects, criticalCount, chosenCount);
+
         // PRIORITY 2: If health is critical, add healing actions AGGRESSIVELY
-        if (criticalHealth && chosen.size() < maxActionsHint) {
-            List<Action> healingActions = freeActions.stream()
-                    .filter(a -> isHealingAction(a.getValues()))
-                    .sorted(Comparator.comparing((Action a) -> healingScore(a.getValues())).reversed())
-                    .collect(Collectors.toList());
-            
+        if (criticalHealth && chosenCount < maxActionsHint) {
+            int[] healingActions = arena.candidates;
+            int healingCount = 0;
+            for (int a = 0; a < n; a++) {
+                if (m.actionEffect[a] < 0 && isHealingAction(m.actionHull[a], m.actionCrew[a])) {
+                    healingActions[healingCount++] = a;
+                    arena.overall[a] = -arena.healing[a];
+                }
+            }
+            IndexSort.sort(healingActions, 0, healingCount, arena.overall, null);
+
             // If very critical, add MORE healing actions (up to 40% of slots)
-            int healingSlotsNeeded = veryCritical ? 
-                    Math.max(1, (int)(maxActionsHint * 0.4)) : 
+            int healingSlotsNeeded = veryCritical ?
+                    Math.max(1, (int)(maxActionsHint * 0.4)) :
                     Math.max(1, (int)(maxActionsHint * 0.25));
-            
+
             int healingAdded = 0;
-            for (Action a : healingActions) {
-                if (!chosen.contains(a) && healingAdded < healingSlotsNeeded) {
-                    chosen.add(a);
+            for (int k = 0; k < healingCount; k++) {
+                int a = healingActions[k];
+                if (!chosenFlag[a] && healingAdded < healingSlotsNeeded) {
+                    chosen[chosenCount++] = a;
+                    chosenFlag[a] = true;
                     healingAdded++;
-                    if (chosen.size() >= maxActionsHint) break;
+                    if (chosenCount >= maxActionsHint) break;
                 }
             }
         }
 
-        // PRIORITY 3: Block remaining harmful effects if we have space
-        for (Effect e : normalEffects) {
-            if (chosen.size() >= maxActionsHint) break;
-            List<Action> candidates = actionsByEffect.get(e.getId());
-            if (candidates == null || candidates.isEmpty()) continue;
-            
-            Action best = candidates.stream()
-                    .filter(a -> !chosen.contains(a))
-                    .min(Comparator.comparing((Action a) -> actionSelfHarmScore(a.getValues()))
-                            .thenComparing((Action a) -> actionBenefitScore(a.getValues()), Comparator.reverseOrder()))
-                    .orElse(null);
-            
-            if (best != null) {
-                chosen.add(best);
-                blockedEffectIds.add(e.getId());
-            }
+        // PRIORITY 3: Block as much of the remaining harm as fits in the slots that are left
+        if (chosenCount < slots) {
+            scheduler.schedule(arena.normalEffects, normalCount, arena.effectDeadline, arena.effectWeight,
+                    slots - chosenCount, arena.effectSlot, arena.scheduleKey, arena.scheduleTieKey);
+            chosenCount = pinBlockers(arena, arena.normalEffects, normalCount, chosenCount);
         }
 
         // PRIORITY 4: Fill remaining slots with best beneficial actions
-        if (chosen.size() < maxActionsHint) {
-            List<Action> remainingFree = freeActions.stream()
-                    .filter(a -> !chosen.contains(a))
-                    .sorted(Comparator.comparing((Action a) -> overallActionScore(a.getValues(), criticalHealth)).reversed())
-                    .collect(Collectors.toList());
-            
-            for (Action a : remainingFree) {
-                if (chosen.size() >= maxActionsHint) break;
-                chosen.add(a);
+        if (chosenCount < maxActionsHint) {
+            int[] remainingFree = arena.candidates;
+            int remainingCount = 0;
+            for (int a = 0; a < n; a++) {
+                if (m.actionEffect[a] < 0 && !chosenFlag[a]) {
+                    remainingFree[remainingCount++] = a;
+                    arena.overall[a] = -overallActionScore(a, arena, criticalHealth);
+                }
+            }
+            IndexSort.sort(remainingFree, 0, remainingCount, arena.overall, null);
+
+            for (int k = 0; k < remainingCount; k++) {
+                if (chosenCount >= maxActionsHint) break;
+                chosen[chosenCount++] = remainingFree[k];
+            }
+        }
+
+        int length = buildOptimalOrder(m, arena, chosenCount, maxActionsHint);
+        return improveAndSanityCheck(arena, length);
+    }
+
+    /**
+     * Adds the blockers of the scheduled effects to the chosen actions and pins them to their slots.
+     */
+    private int pinBlockers(DecisionArena arena, int[] effects, int count, int chosenCount) {
+        for (int k = 0; k < count; k++) {
+            int e = effects[k];
+            int slot = arena.effectSlot[e];
+            if (slot > 0) {
+                int blocker = arena.effectBlocker[e];
+                arena.chosen[chosenCount++] = blocker;
+                arena.chosenFlag[blocker] = true;
+                arena.slotAction[slot] = blocker;
             }
         }
+        return chosenCount;
+    }
 
-        List<Long> order = buildOptimalOrder(chosen, effects, start, maxActionsHint);
-        List<Long> safe = improveAndSanityCheck(order, start, effects);
-        return safe;
+    /**
+     * Returns the action blocking the effect with the least self-harm, then the most benefit,
+     * or -1 if there is none.
+     */
+    private int bestBlocker(RoundModel m, DecisionArena arena, int effect) {
+        int best = -1;
+        for (int k = m.blockerStart[effect], end = m.blockerStart[effect + 1]; k < end; k++) {
+            int a = m.blockerActions[k];
+            if (best < 0 || arena.selfHarm[a] < arena.selfHarm[best]
+                    || (arena.selfHarm[a] == arena.selfHarm[best] && arena.benefit[a] > arena.benefit[best])) {
+                best = a;
+            }
+        }
+        return best;
     }
 
-    private List<Long> buildOptimalOrder(List<Action> chosen,
-                                         List<Effect> effects,
-                                         Values start,
-                                         int maxActionsHint) {
-        // Separate actions into categories
-        List<Action> blockingActions = new ArrayList<>();
-        List<Action> healingActions = new ArrayList<>();
-        List<Action> otherActions = new ArrayList<>();
-        
-        for (Action a : chosen) {
-            if (a.getEffectId() >= 0 && effectById.containsKey(a.getEffectId())) {
-                blockingActions.add(a);
-            } else if (isHealingAction(a.getValues())) {
-                healingActions.add(a);
+    private int buildOptimalOrder(RoundModel m,
+                                  DecisionArena arena,
+                                  int chosenCount,
+                                  int maxActionsHint) {
+        // Blockers are already pinned to their slots; separate the other actions, by their position in the
+        // chosen list so the sorts stay stable
+        int[] chosen = arena.chosen;
+        int[] slotAction = arena.slotAction;
+        int[] healingActions = arena.healingOrder;
+        int[] otherActions = arena.other;
+        int healingCount = 0, otherCount = 0, pinnedCount = 0;
+
+        for (int p = 0; p < chosenCount; p++) {
+            int a = chosen[p];
+            if (m.actionEffect[a] >= 0) {
+                pinnedCount++;
+            } else if (isHealingAction(m.actionHull[a], m.actionCrew[a])) {
+                healingActions[healingCount++] = p;
             } else {
-                otherActions.add(a);
+                otherActions[otherCount++] = p;
             }
         }
-        
-        // Sort blocking actions by effect step (must be done before the effect triggers)
-        blockingActions.sort(Comparator.comparingInt(a -> {
-            Effect e = effectById.get(a.getEffectId());
-            return e == null ? Integer.MAX_VALUE : e.getStep();
-        }));
-        
+
         // Sort healing by benefit
-        healingActions.sort(Comparator.comparing((Action a) -> healingScore(a.getValues()), Comparator.reverseOrder()));
-        
+        long[] key = arena.positionKey;
+        for (int k = 0; k < healingCount; k++) {
+            int p = healingActions[k];
+            key[p] = -arena.healing[chosen[p]];
+        }
+        IndexSort.sort(healingActions, 0, healingCount, key, null);
+
         // Sort other actions by overall benefit
-        otherActions.sort(Comparator.comparing((Action a) -> actionBenefitScore(a.getValues()), Comparator.reverseOrder()));
-        
-        // Build order: interleave healing before blocking if we're low health, otherwise block first
-        List<Action> ordered = new ArrayList<>();
-        int blockIdx = 0, healIdx = 0, otherIdx = 0;
-        
-        Values current = cloneValues(start);
+        for (int k = 0; k < otherCount; k++) {
+            int p = otherActions[k];
+            key[p] = -arena.benefit[chosen[p]];
+        }
+        IndexSort.sort(otherActions, 0, otherCount, key, null);
+
+        // Build order: every blocker at its slot, heal first in the free slots if we're low health.
+        // Slots left empty are skipped, which only moves the later blockers earlier, so they stay on time.
+        int[] ordered = arena.ordered;
+        int orderedCount = 0;
+        int healIdx = 0, otherIdx = 0;
+
+        FixedValues current = arena.current.set(m.start);
         boolean needsHealing = wouldBeCritical(current);
-        
-        while (ordered.size() < maxActionsHint && ordered.size() < chosen.size()) {
-            // If critical health and healing available, prioritize healing
-            if (needsHealing && healIdx < healingActions.size()) {
-                Action a = healingActions.get(healIdx++);
-                ordered.add(a);
-                current = sumValues(current, a.getValues());
-                needsHealing = wouldBeCritical(current);
-            }
-            // Check if we need to block an effect at this step
-            else if (blockIdx < blockingActions.size()) {
-                Action a = blockingActions.get(blockIdx);
-                Effect e = effectById.get(a.getEffectId());
-                int nextStep = ordered.size() + 1;
-                
-                // Must block before the effect triggers
-                if (e != null && nextStep <= e.getStep()) {
-                    ordered.add(a);
-                    blockIdx++;
-                    current = sumValues(current, a.getValues());
-                    needsHealing = wouldBeCritical(current);
-                } else if (healIdx < healingActions.size()) {
-                    // Effect not urgent, do healing if available
-                    Action heal = healingActions.get(healIdx++);
-                    ordered.add(heal);
-                    current = sumValues(current, heal.getValues());
-                    needsHealing = wouldBeCritical(current);
-                } else if (otherIdx < otherActions.size()) {
-                    // Do other actions
-                    Action other = otherActions.get(otherIdx++);
-                    ordered.add(other);
-                    current = sumValues(current, other.getValues());
-                    needsHealing = wouldBeCritical(current);
-                } else {
-                    // Add blocking action even if late
-                    ordered.add(a);
-                    blockIdx++;
-                    current = sumValues(current, a.getValues());
-                    needsHealing = wouldBeCritical(current);
-                }
+
+        for (int s = 1, slots = Math.min(maxActionsHint, m.actionCount); s <= slots && orderedCount < chosenCount; s++) {
+            int a;
+            if (slotAction[s] >= 0) {
+                a = slotAction[s];
+                pinnedCount--;
             }
-            // Fill with other actions
-            else if (otherIdx < otherActions.size()) {
-                Action a = otherActions.get(otherIdx++);
-                ordered.add(a);
-                current = sumValues(current, a.getValues());
-                needsHealing = wouldBeCritical(current);
+            // If critical health and healing available, prioritize healing
+            else if (needsHealing && healIdx < healingCount) {
+                a = chosen[healingActions[healIdx++]];
             }
-            // Fill with remaining healing
-            else if (healIdx < healingActions.size()) {
-                Action a = healingActions.get(healIdx++);
-                ordered.add(a);
-                current = sumValues(current, a.getValues());
-                needsHealing = wouldBeCritical(current);
+            // Heal while blockers are still to come, otherwise do other actions first
+            else if (pinnedCount > 0 && healIdx < healingCount) {
+                a = chosen[healingActions[healIdx++]];
+            } else if (otherIdx < otherCount) {
+                a = chosen[otherActions[otherIdx++]];
+            } else if (healIdx < healingCount) {
+                a = chosen[healingActions[healIdx++]];
             } else {
-                break;
+                continue;
             }
+            ordered[orderedCount++] = a;
+            m.addAction(current, a);
+            needsHealing = wouldBeCritical(current);
         }
-        
-        List<Long> ids = new ArrayList<>();
-        for (Action a : ordered) {
-            ids.add(a.getId());
+
+        for (int i = 0; i < orderedCount; i++) {
+            arena.orderedIds[i] = m.actionIds[ordered[i]];
         }
-        return ids;
+        return orderedCount;
     }
 
-    private List<Long> improveAndSanityCheck(List<Long> actionIds,
-                                             Values start,
-                                             List<Effect> effects) {
+    private int improveAndSanityCheck(DecisionArena arena, int length) {
         // Don't return empty list even if we predict death - always try to survive!
         // The simulation might be wrong, and doing nothing guarantees death
-        if (actionIds.isEmpty()) {
-            return actionIds;
-        }
-        
-        Values v = cloneValues(start);
-        int maxStep = Math.max(actionIds.size(), effects.stream().mapToInt(Effect::getStep).max().orElse(0));
-        
-        // Simulate to verify actions are beneficial, but don't reject them if we predict death
-        for (int s = 1; s <= maxStep; s++) {
-            int idx = s - 1;
-            if (idx >= 0 && idx < actionIds.size()) {
-                Values delta = findActionValues(actionIds.get(idx));
-                if (delta != null) v = sumValues(v, delta);
-                // Removed: if (isDead(v)) return new ArrayList<>();
-                // Better to try than to give up!
-            }
-            for (Effect e : effects) {
-                if (e.getStep() == s) {
-                    boolean blocked = hasActionAtOrBefore(actionIds, e);
-                    if (!blocked) {
-                        v = sumValues(v, e.getValues());
-                        // Removed: if (isDead(v)) return new ArrayList<>();
-                        // Better to try than to give up!
-                    }
-                }
-            }
+        if (length == 0) {
+            return length;
         }
-        
-        // Always return the actions - trying is better than giving up
-        return actionIds;
-    }
-
-    private boolean hasActionAtOrBefore(List<Long> actionIds, Effect e) {
-        int idx = indexOfActionBlockingEffect(actionIds, e.getId());
-        return idx >= 0 && (idx + 1) <= e.getStep();
-    }
 
-    private int indexOfActionBlockingEffect(List<Long> actionIds, long effectId) {
-        for (int i = 0; i < actionIds.size(); i++) {
-            long aId = actionIds.get(i);
-            Long eid = actionToEffectId.get(aId);
-            if (eid != null && eid == effectId) return i;
-        }
-        return -1;
-    }
+        // Simulate to verify actions are beneficial, but don't reject them if we predict death
+        // (the compiled model applies each step's action, then the step's unblocked effects)
+        arena.simulator.simulate(arena.ordered, length, arena.scratch);
+        // Removed: if (isDead(v)) return new ArrayList<>();
+        // Better to try than to give up!
 
-    private Values findActionValues(Long actionId) {
-        return actionToValues.get(actionId);
+        // Always return the actions - trying is better than giving up
+        return length;
     }
 
-    private BigDecimal harmScore(Values v) {
-        BigDecimal h = v.getHullStrength();
-        BigDecimal c = v.getCrewHealth();
-        BigDecimal negH = h == null ? BigDecimal.ZERO : h.min(BigDecimal.ZERO).abs();
-        BigDecimal negC = c == null ? BigDecimal.ZERO : c.min(BigDecimal.ZERO).abs();
+    private long harmScore(long hull, long crew) {
+        long negH = Math.max(0L, -hull);
+        long negC = Math.max(0L, -crew);
         // Weight both equally - both can kill you!
-        return negH.add(negC);
+        return negH + negC;
     }
 
-    private BigDecimal actionSelfHarmScore(Values v) {
-        BigDecimal hs = v.getHullStrength() == null ? BigDecimal.ZERO : v.getHullStrength().min(BigDecimal.ZERO).abs();
-        BigDecimal cs = v.getCrewHealth() == null ? BigDecimal.ZERO : v.getCrewHealth().min(BigDecimal.ZERO).abs();
+    private long actionSelfHarmScore(long hull, long crew) {
+        long hs = Math.max(0L, -hull);
+        long cs = Math.max(0L, -crew);
         // Weight both equally - avoid damaging either
-        return hs.add(cs);
+        return hs + cs;
     }
 
-    private BigDecimal actionBenefitScore(Values v) {
-        BigDecimal hs = v.getHullStrength() == null ? BigDecimal.ZERO : v.getHullStrength().max(BigDecimal.ZERO);
-        BigDecimal cs = v.getCrewHealth() == null ? BigDecimal.ZERO : v.getCrewHealth().max(BigDecimal.ZERO);
-        BigDecimal mhs = v.getMaxHullStrength() == null ? BigDecimal.ZERO : v.getMaxHullStrength().max(BigDecimal.ZERO);
-        BigDecimal mcs = v.getMaxCrewHealth() == null ? BigDecimal.ZERO : v.getMaxCrewHealth().max(BigDecimal.ZERO);
+    private long actionBenefitScore(long hull, long maxHull, long crew, long maxCrew) {
+        long hs = Math.max(0L, hull);
+        long cs = Math.max(0L, crew);
+        long mhs = Math.max(0L, maxHull);
+        long mcs = Math.max(0L, maxCrew);
         // All positive changes are beneficial - prioritize current health slightly more
-        return hs.add(cs).multiply(new BigDecimal("1.2")).add(mhs).add(mcs);
+        return (hs + cs) * 12 / 10 + mhs + mcs;
     }
-    
-    private boolean wouldBeCritical(Values v) {
-        BigDecimal hullPercent = v.getMaxHullStrength().compareTo(BigDecimal.ZERO) > 0 ? 
-            v.getHullStrength().divide(v.getMaxHullStrength(), 2, java.math.RoundingMode.HALF_UP) : 
-            BigDecimal.ZERO;
-        BigDecimal crewPercent = v.getMaxCrewHealth().compareTo(BigDecimal.ZERO) > 0 ? 
-            v.getCrewHealth().divide(v.getMaxCrewHealth(), 2, java.math.RoundingMode.HALF_UP) : 
-            BigDecimal.ZERO;
+
+    private boolean wouldBeCritical(FixedValues v) {
         // Critical if EITHER metric is below 45% (conservative)
-        return hullPercent.compareTo(new BigDecimal("0.45")) < 0 || 
-               crewPercent.compareTo(new BigDecimal("0.45")) < 0;
+        return v.isBelow(WOULD_BE_CRITICAL_PERCENT);
     }
-    
-    private boolean isHealingAction(Values v) {
-        BigDecimal hs = v.getHullStrength() == null ? BigDecimal.ZERO : v.getHullStrength();
-        BigDecimal cs = v.getCrewHealth() == null ? BigDecimal.ZERO : v.getCrewHealth();
+
+    private boolean isHealingAction(long hull, long crew) {
         // Any positive hull OR crew change is healing
-        return hs.compareTo(BigDecimal.ZERO) > 0 || cs.compareTo(BigDecimal.ZERO) > 0;
+        return hull > 0 || crew > 0;
     }
-    
-    private BigDecimal healingScore(Values v) {
-        BigDecimal hs = v.getHullStrength() == null ? BigDecimal.ZERO : v.getHullStrength().max(BigDecimal.ZERO);
-        BigDecimal cs = v.getCrewHealth() == null ? BigDecimal.ZERO : v.getCrewHealth().max(BigDecimal.ZERO);
+
+    private long healingScore(long hull, long crew) {
+        long hs = Math.max(0L, hull);
+        long cs = Math.max(0L, crew);
         // Sum both hull and crew healing equally
-        return hs.add(cs);
+        return hs + cs;
     }
-    
-    private BigDecimal overallActionScore(Values v, boolean criticalHealth) {
-        BigDecimal benefit = actionBenefitScore(v);
-        BigDecimal harm = actionSelfHarmScore(v);
-        
+
+    private long overallActionScore(int a, DecisionArena arena, boolean criticalHealth) {
+        long benefit = arena.benefit[a];
+        long harm = arena.selfHarm[a];
+
         // If we're in critical health, HEAVILY prioritize healing and avoid ANY harm
         if (criticalHealth) {
-            BigDecimal healing = healingScore(v);
+            long healing = arena.healing[a];
             // 4x healing bonus, 10x harm penalty when critical
-            return benefit.add(healing.multiply(new BigDecimal("4"))).subtract(harm.multiply(new BigDecimal("10")));
+            return benefit + healing * 4 - harm * 10;
         }
-        
-        // Otherwise balance benefit and avoid harm (but still avoid harm strongly)
-        return benefit.subtract(harm.multiply(new BigDecimal("3")));
-    }
 
-    private Values cloneValues(Values v) {
-        Values c = new Values();
-        c.setHullStrength(v.getHullStrength());
-        c.setMaxHullStrength(v.getMaxHullStrength());
-        c.setCrewHealth(v.getCrewHealth());
-        c.setMaxCrewHealth(v.getMaxCrewHealth());
-        return c;
+        // Otherwise balance benefit and avoid harm (but still avoid harm strongly)
+        return benefit - harm * 3;
     }
 }
@@ -0,0 +1,237 @@
+package be.thebeehive.htf.client;
+
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Values;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Mutable fixed-point counterpart of {@link Values}.
+ * <p>
+ * Hull strength, crew health and their maximums are stored as {@code long}s scaled by {@link #SCALE},
+ * so clamping, comparisons and scoring run on primitives without allocating any {@link BigDecimal}s.
+ * Use {@link #of(Values)} once per round to convert the server values, then work on this class.
+ */
+public final class FixedValues {
+
+    /**
+     * Number of fixed-point units per whole unit (6 decimal places).
+     */
+    public static final long SCALE = 1_000_000L;
+
+    private long hullStrength;
+    private long maxHullStrength;
+    private long crewHealth;
+    private long maxCrewHealth;
+
+    public FixedValues() {
+
+    }
+
+    public FixedValues(long hullStrength, long maxHullStrength, long crewHealth, long maxCrewHealth) {
+        this.hullStrength = hullStrength;
+        this.maxHullStrength = maxHullStrength;
+        this.crewHealth = crewHealth;
+        this.maxCrewHealth = maxCrewHealth;
+    }
+
+    /**
+     * Converts server values to fixed-point. Missing fields are treated as zero.
+     *
+     * @param values the values to convert.
+     * @return a new FixedValues instance.
+     */
+    public static FixedValues of(Values values) {
+        return new FixedValues(
+                toFixed(values.getHullStrength()),
+                toFixed(values.getMaxHullStrength()),
+                toFixed(values.getCrewHealth()),
+                toFixed(values.getMaxCrewHealth())
+        );
+    }
+
+    /**
+     * Converts a decimal to fixed-point, rounding half-up beyond 6 decimal places.
+     * <p>
+     * Decimals with at most 6 decimal places and 9 integer digits, which covers everything the server
+     * sends, are converted through a double without allocating; the result still rounds to the exact value.
+     *
+     * @param value the decimal to convert, may be null.
+     * @return the fixed-point value, or 0 when value is null.
+     */
+    public static long toFixed(BigDecimal value) {
+        if (value == null) {
+            return 0L;
+        }
+        if (value.scale() <= 6 && value.precision() - value.scale() <= 9) {
+            return Math.round(value.doubleValue() * SCALE);
+        }
+        return value.movePointRight(6).setScale(0, RoundingMode.HALF_UP).longValue();
+    }
+
+    /**
+     * Converts a fixed-point value back to a decimal.
+     *
+     * @param fixed the fixed-point value.
+     * @return the decimal value.
+     */
+    public static BigDecimal toBigDecimal(long fixed) {
+        return BigDecimal.valueOf(fixed, 6).stripTrailingZeros();
+    }
+
+    /**
+     * Returns value / max as a whole percentage, rounded half-up like
+     * {@code value.divide(max, 2, RoundingMode.HALF_UP)}. A non-positive max yields 0.
+     *
+     * @param value the current value.
+     * @param max   the maximum value.
+     * @return the rounded percentage.
+     */
+    public static long percent(long value, long max) {
+        if (max <= 0) {
+            return 0L;
+        }
+        long num = value * 100;
+        long q = num / max;
+        long r = num % max;
+        if (2 * Math.abs(r) >= max) {
+            q += num < 0 ? -1 : 1;
+        }
+        return q;
+    }
+
+    /**
+     * Copies server values into this instance. Missing fields are treated as zero.
+     *
+     * @param values the values to convert.
+     * @return this instance.
+     */
+    public FixedValues set(Values values) {
+        this.hullStrength = toFixed(values.getHullStrength());
+        this.maxHullStrength = toFixed(values.getMaxHullStrength());
+        this.crewHealth = toFixed(values.getCrewHealth());
+        this.maxCrewHealth = toFixed(values.getMaxCrewHealth());
+        return this;
+    }
+
+    /**
+     * Sets all values at once.
+     *
+     * @param hull    the hull strength.
+     * @param maxHull the max hull strength.
+     * @param crew    the crew health.
+     * @param maxCrew the max crew health.
+     * @return this instance.
+     */
+    public FixedValues set(long hull, long maxHull, long crew, long maxCrew) {
+        this.hullStrength = hull;
+        this.maxHullStrength = maxHull;
+        this.crewHealth = crew;
+        this.maxCrewHealth = maxCrew;
+        return this;
+    }
+
+    /**
+     * Copies all values of another instance into this one.
+     *
+     * @param other the values to copy.
+     * @return this instance.
+     */
+    public FixedValues set(FixedValues other) {
+        this.hullStrength = other.hullStrength;
+        this.maxHullStrength = other.maxHullStrength;
+        this.crewHealth = other.crewHealth;
+        this.maxCrewHealth = other.maxCrewHealth;
+        return this;
+    }
+
+    /**
+     * Adds a delta in place with the same clamping rules as {@link ClientUtils#sumValues(Values, Values)}.
+     *
+     * @param delta the values to add.
+     * @return this instance.
+     */
+    public FixedValues add(FixedValues delta) {
+        return add(delta.hullStrength, delta.maxHullStrength, delta.crewHealth, delta.maxCrewHealth);
+    }
+
+    /**
+     * Adds a delta in place with the same clamping rules as {@link ClientUtils#sumValues(Values, Values)}.
+     *
+     * @param hull    the hull strength delta.
+     * @param maxHull the max hull strength delta.
+     * @param crew    the crew health delta.
+     * @param maxCrew the max crew health delta.
+     * @return this instance.
+     */
+    public FixedValues add(long hull, long maxHull, long crew, long maxCrew) {
+        long mh = Math.max(0L, this.maxHullStrength + maxHull);
+        long mc = Math.max(0L, this.maxCrewHealth + maxCrew);
+        this.maxHullStrength = mh;
+        this.maxCrewHealth = mc;
+        this.hullStrength = Math.max(0L, Math.min(mh, this.hullStrength + hull));
+        this.crewHealth = Math.max(0L, Math.min(mc, this.crewHealth + crew));
+        return this;
+    }
+
+    /**
+     * @return true if the hull strength or crew health is zero or less.
+     */
+    public boolean isDead() {
+        return hullStrength <= 0 || crewHealth <= 0;
+    }
+
+    /**
+     * @return true if both the hull strength and crew health are above zero.
+     */
+    public boolean isAlive() {
+        return !isDead();
+    }
+
+    /**
+     * Checks whether hull strength or crew health is below the given percentage of its maximum.
+     *
+     * @param thresholdPercent the threshold as a whole percentage, e.g. 45.
+     * @return true if either metric is below the threshold.
+     */
+    public boolean isBelow(long thresholdPercent) {
+        return percent(hullStrength, maxHullStrength) < thresholdPercent ||
+                percent(crewHealth, maxCrewHealth) < thresholdPercent;
+    }
+
+    /**
+     * Converts these values back to a new server {@link Values} object.
+     *
+     * @return a new Values object.
+     */
+    public Values toValues() {
+        Values v = new Values();
+        v.setHullStrength(toBigDecimal(hullStrength));
+        v.setMaxHullStrength(toBigDecimal(maxHullStrength));
+        v.setCrewHealth(toBigDecimal(crewHealth));
+        v.setMaxCrewHealth(toBigDecimal(maxCrewHealth));
+        return v;
+    }
+
+    public long getHullStrength() {
+        return hullStrength;
+    }
+
+    public long getMaxHullStrength() {
+        return maxHullStrength;
+    }
+
+    public long getCrewHealth() {
+        return crewHealth;
+    }
+
+    public long getMaxCrewHealth() {
+        return maxCrewHealth;
+    }
+
+    @Override
+    public String toString() {
+        return "Hull: " + toBigDecimal(hullStrength).toPlainString() + "/" + toBigDecimal(maxHullStrength).toPlainString()
+                + ", Crew: " + toBigDecimal(crewHealth).toPlainString() + "/" + toBigDecimal(maxCrewHealth).toPlainString();
+    }
+}
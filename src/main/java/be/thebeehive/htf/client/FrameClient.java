@@ -0,0 +1,72 @@
+package be.thebeehive.htf.client;
+
+import be.thebeehive.htf.library.GameRoundFrame;
+import be.thebeehive.htf.library.HtfClient;
+import be.thebeehive.htf.library.HtfFrameListener;
+import be.thebeehive.htf.library.protocol.client.SelectActionsClientMessage;
+import be.thebeehive.htf.library.protocol.server.ErrorServerMessage;
+import be.thebeehive.htf.library.protocol.server.GameEndedServerMessage;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+import be.thebeehive.htf.library.protocol.server.WarningServerMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Client that plays {@link DecisionEngine} on rounds decoded by the streaming
+ * {@link be.thebeehive.htf.library.GameRoundDecoder}, without binding round POJOs or logging every round.
+ * Answers are written straight from the arena's action ids, see {@link HtfClient#sendActions(long, long, long[], int)}.
+ */
+public class FrameClient implements HtfFrameListener {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FrameClient.class);
+
+    private final DecisionEngine engine = new DecisionEngine();
+    private final DecisionArena arena = new DecisionArena();
+    private int maxActionsCap = 5;
+
+    @Override
+    public void onErrorServerMessage(HtfClient client, ErrorServerMessage msg) throws Exception {
+        LOGGER.error("ERROR: {}", msg.getMsg());
+    }
+
+    @Override
+    public void onGameEndedServerMessage(HtfClient client, GameEndedServerMessage msg) throws Exception {
+        LOGGER.info("Game ended at round {}", msg.getRound());
+    }
+
+    @Override
+    public void onGameRoundFrame(HtfClient client, GameRoundFrame frame) throws Exception {
+        int length = engine.decideActions(frame, Math.min(maxActionsCap, frame.getActionCount()), arena);
+        client.sendActions(frame.getRoundIdMostSigBits(), frame.getRoundIdLeastSigBits(), arena.getActionIds(), length);
+    }
+
+    /**
+     * Only called when a round could not be decoded as a frame.
+     */
+    @Override
+    public void onGameRoundServerMessage(HtfClient client, GameRoundServerMessage msg) throws Exception {
+        int cap = Math.min(maxActionsCap, msg.getActions() != null ? msg.getActions().size() : 0);
+        int length = engine.decideActions(msg, cap, arena);
+        client.send(new SelectActionsClientMessage(msg.getRoundId(), toList(arena.getActionIds(), length)));
+    }
+
+    @Override
+    public void onWarningServerMessage(HtfClient client, WarningServerMessage msg) throws Exception {
+        String m = msg.getMsg() == null ? "" : msg.getMsg().toLowerCase();
+        LOGGER.warn("WARNING: {}", msg.getMsg());
+        if (m.contains("too many") || m.contains("maximum") || m.contains("exceeded")) {
+            maxActionsCap = Math.max(1, maxActionsCap - 1);
+            LOGGER.info("Adjusting maxActionsCap to {}", maxActionsCap);
+        }
+    }
+
+    private static List<Long> toList(long[] ids, int length) {
+        List<Long> result = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            result.add(ids[i]);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,88 @@
+package be.thebeehive.htf.client;
+
+/**
+ * In-place sorting of index arrays by primitive keys, without comparators or boxing.
+ * <p>
+ * Indexes are ordered by {@code primary[i]}, then {@code secondary[i]} (when given), then by the index itself.
+ * The order is total, so the result equals a stable sort of indexes that were in ascending order.
+ * Negate a key to sort it descending.
+ */
+final class IndexSort {
+
+    private static final int INSERTION_THRESHOLD = 16;
+
+    private IndexSort() {
+
+    }
+
+    /**
+     * Sorts idx[from, to).
+     *
+     * @param idx       the indexes to sort.
+     * @param from      the first position, inclusive.
+     * @param to        the last position, exclusive.
+     * @param primary   the primary key of every index.
+     * @param secondary the secondary key of every index, or null.
+     */
+    static void sort(int[] idx, int from, int to, long[] primary, long[] secondary) {
+        while (to - from > INSERTION_THRESHOLD) {
+            int mid = (from + to) >>> 1;
+            int pivot = medianOfThree(idx[from], idx[mid], idx[to - 1], primary, secondary);
+            int i = from;
+            int j = to - 1;
+            while (i <= j) {
+                while (compare(idx[i], pivot, primary, secondary) < 0) i++;
+                while (compare(idx[j], pivot, primary, secondary) > 0) j--;
+                if (i <= j) {
+                    int tmp = idx[i];
+                    idx[i] = idx[j];
+                    idx[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+            // Recurse into the smaller half to bound the stack depth
+            if (j + 1 - from < to - i) {
+                sort(idx, from, j + 1, primary, secondary);
+                from = i;
+            } else {
+                sort(idx, i, to, primary, secondary);
+                to = j + 1;
+            }
+        }
+        for (int i = from + 1; i < to; i++) {
+            int v = idx[i];
+            int j = i - 1;
+            while (j >= from && compare(idx[j], v, primary, secondary) > 0) {
+                idx[j + 1] = idx[j];
+                j--;
+            }
+            idx[j + 1] = v;
+        }
+    }
+
+    private static int medianOfThree(int a, int b, int c, long[] primary, long[] secondary) {
+        if (compare(a, b, primary, secondary) > 0) {
+            int tmp = a;
+            a = b;
+            b = tmp;
+        }
+        if (compare(b, c, primary, secondary) > 0) {
+            b = c;
+            if (compare(a, b, primary, secondary) > 0) {
+                b = a;
+            }
+        }
+        return b;
+    }
+
+    private static int compare(int a, int b, long[] primary, long[] secondary) {
+        int c = Long.compare(primary[a], primary[b]);
+        if (c != 0) return c;
+        if (secondary != null) {
+            c = Long.compare(secondary[a], secondary[b]);
+            if (c != 0) return c;
+        }
+        return Integer.compare(a, b);
+    }
+}
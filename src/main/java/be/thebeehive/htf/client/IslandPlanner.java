@@ -0,0 +1,287 @@
+package be.thebeehive.htf.client;
+
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Island-model simulated annealing over action plans, one island per worker thread.
+ * <p>
+ * Every island starts from the greedy plan of the seed planner. Each step it applies one of the moves of
+ * {@link AnytimePlanner} and accepts worse plans with the Metropolis probability. The temperature falls
+ * linearly to zero at the deadline, and every island starts at a different temperature, so some explore
+ * and some refine. Every {@code migrationInterval} steps an island publishes its best plan and adopts the
+ * best plan of its neighbour in a ring if that one is better. Islands only share these immutable
+ * snapshots, so they never wait on each other.
+ * <p>
+ * The search runs until the deadline or until the calling thread is interrupted, like {@link MctsPlanner}.
+ * {@link #getLastImprovement()} and {@link #getLastEvaluationsPerSecond()} report how much the last round
+ * gained over the greedy plan and how fast the islands evaluated plans. One search runs at a time, so a
+ * planner must not decide two rounds concurrently.
+ */
+public class IslandPlanner implements ActionPlanner, AutoCloseable {
+
+    public static final int DEFAULT_MIGRATION_INTERVAL = 2_000;
+
+    private static final int DEADLINE_CHECK_INTERVAL = 64;
+
+    private final ActionPlanner seed;
+    private final int islands;
+    private final long budgetNanos;
+    private final int migrationInterval;
+    private final SearchPool workers;
+    // The best plan each island published last
+    private final AtomicReferenceArray<Migrant> board;
+
+    private Island[] searchers = new Island[0];
+
+    private long lastEvaluations;
+    private long lastImprovement;
+    private double lastEvaluationsPerSecond;
+
+    public IslandPlanner() {
+        this(new DecisionEngine(), Runtime.getRuntime().availableProcessors(), AnytimePlanner.DEFAULT_BUDGET_MILLIS,
+                DEFAULT_MIGRATION_INTERVAL);
+    }
+
+    /**
+     * @param seed              the planner providing the initial plan of every island.
+     * @param islands           the number of islands, each on its own worker thread.
+     * @param budgetMillis      the time budget per round in milliseconds, including the seed planner.
+     * @param migrationInterval the number of steps between two migrations.
+     */
+    public IslandPlanner(ActionPlanner seed, int islands, long budgetMillis, int migrationInterval) {
+        this.seed = seed;
+        this.islands = Math.max(1, islands);
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        this.migrationInterval = Math.max(1, migrationInterval);
+        this.board = new AtomicReferenceArray<>(this.islands);
+        this.workers = new SearchPool("htf-island", this.islands);
+    }
+
+    @Override
+    public List<Long> decideActions(GameRoundServerMessage msg, int maxActionsHint) {
+        return decideActions(msg, maxActionsHint, System.nanoTime() + budgetNanos);
+    }
+
+    /**
+     * Decides the actions of a round, searching until the given deadline or until the calling thread is
+     * interrupted. The interrupt flag is kept.
+     *
+     * @param msg            the current game round.
+     * @param maxActionsHint the maximum number of actions that may be returned.
+     * @param deadlineNanos  the {@link System#nanoTime()} at which the best plan so far must be returned.
+     * @return the ordered action ids.
+     */
+    public List<Long> decideActions(GameRoundServerMessage msg, int maxActionsHint, long deadlineNanos) {
+        long startNanos = System.nanoTime();
+        List<Long> greedy = seed.decideActions(msg, maxActionsHint);
+        RoundModel model = RoundModel.of(msg);
+        int n = model.actionCount;
+        int cap = Math.min(maxActionsHint, n);
+        if (cap <= 0 || model.start.isDead()) {
+            return greedy;
+        }
+
+        int[] best = new int[Math.max(n, greedy.size())];
+        int bestLength = Math.min(cap, model.toPlan(greedy, best));
+        long greedyScore = model.evaluate(best, bestLength);
+        long bestScore = greedyScore;
+
+        Migrant start = new Migrant(best, bestLength, greedyScore);
+        for (int i = 0; i < islands; i++) {
+            board.set(i, start);
+        }
+        // The temperature at which a plan this much worse is accepted with probability 1/e
+        double hottest = Math.max(FixedValues.SCALE,
+                (model.start.getMaxHullStrength() + model.start.getMaxCrewHealth()) / 20.0);
+        if (searchers.length != islands) {
+            searchers = new Island[islands];
+            for (int i = 0; i < islands; i++) {
+                searchers[i] = new Island(i);
+            }
+        }
+        for (int i = 0; i < islands; i++) {
+            searchers[i].reset(model, cap, start, hottest * (i + 1) / islands, msg.getRound() * 31L + i,
+                    startNanos, deadlineNanos);
+        }
+        workers.runAll(searchers);
+
+        long evaluations = 0;
+        for (int i = 0; i < islands; i++) {
+            Island island = searchers[i];
+            evaluations += island.evaluations;
+            if (island.bestScore > bestScore) {
+                bestScore = island.bestScore;
+                bestLength = island.bestLength;
+                System.arraycopy(island.best, 0, best, 0, bestLength);
+            }
+        }
+        long elapsed = Math.max(1L, System.nanoTime() - startNanos);
+        this.lastEvaluations = evaluations;
+        this.lastEvaluationsPerSecond = evaluations * 1e9 / elapsed;
+        this.lastImprovement = bestScore - greedyScore;
+        return model.toActionIds(best, bestLength);
+    }
+
+    /**
+     * @return the number of plans the islands evaluated in the last round.
+     */
+    public long getLastEvaluations() {
+        return lastEvaluations;
+    }
+
+    /**
+     * @return the plans evaluated per second in the last round, over all islands.
+     */
+    public double getLastEvaluationsPerSecond() {
+        return lastEvaluationsPerSecond;
+    }
+
+    /**
+     * @return how much the last plan improved on the greedy plan, see {@link RoundModel#score(FixedValues)}.
+     */
+    public long getLastImprovement() {
+        return lastImprovement;
+    }
+
+    /**
+     * Stops the worker threads.
+     */
+    @Override
+    public void close() {
+        workers.close();
+    }
+
+    /**
+     * An immutable snapshot of a plan, shared between islands.
+     */
+    private static final class Migrant {
+        final int[] plan;
+        final int length;
+        final long score;
+
+        Migrant(int[] plan, int length, long score) {
+            this.plan = new int[length];
+            System.arraycopy(plan, 0, this.plan, 0, length);
+            this.length = length;
+            this.score = score;
+        }
+    }
+
+    private final class Island implements Runnable {
+
+        private final int index;
+        private RoundModel.Simulator simulator;
+        private int n;
+        private int cap;
+        private double startTemperature;
+        private Random random;
+        private long startNanos;
+        private long deadlineNanos;
+
+        private int[] current = new int[0];
+        private int[] candidate = new int[0];
+        private boolean[] used = new boolean[0];
+        private int currentLength;
+        private long currentScore;
+        private int[] best = new int[0];
+        private int bestLength;
+        private long bestScore;
+        private long published;
+        private long evaluations;
+
+        Island(int index) {
+            this.index = index;
+        }
+
+        void reset(RoundModel model, int cap, Migrant start, double temperature, long seed, long startNanos,
+                   long deadlineNanos) {
+            this.n = model.actionCount;
+            if (current.length < n) {
+                current = new int[n];
+                candidate = new int[n];
+                used = new boolean[n];
+                best = new int[n];
+            }
+            this.simulator = model.newSimulator();
+            this.cap = cap;
+            this.startTemperature = temperature;
+            this.random = new Random(seed);
+            this.startNanos = startNanos;
+            this.deadlineNanos = deadlineNanos;
+            adopt(start);
+            System.arraycopy(start.plan, 0, best, 0, start.length);
+            this.bestLength = start.length;
+            this.bestScore = start.score;
+            this.published = start.score;
+            this.evaluations = 0;
+        }
+
+        @Override
+        public void run() {
+            double temperature = startTemperature;
+            long span = Math.max(1L, deadlineNanos - startNanos);
+            for (long step = 0; !workers.isStopped(); step++) {
+                if (step % DEADLINE_CHECK_INTERVAL == 0) {
+                    long now = System.nanoTime();
+                    if (now - deadlineNanos >= 0) {
+                        return;
+                    }
+                    temperature = startTemperature * (deadlineNanos - now) / span;
+                }
+                if (step % migrationInterval == migrationInterval - 1) {
+                    migrate();
+                }
+
+                System.arraycopy(current, 0, candidate, 0, currentLength);
+                int candidateLength = AnytimePlanner.mutate(candidate, currentLength, cap, n, used, random);
+                if (candidateLength < 0) {
+                    continue;
+                }
+                long score = simulator.evaluate(candidate, candidateLength);
+                evaluations++;
+
+                long delta = score - currentScore;
+                if (delta >= 0 || (temperature > 0 && random.nextDouble() < Math.exp(delta / temperature))) {
+                    int[] tmp = current;
+                    current = candidate;
+                    candidate = tmp;
+                    currentLength = candidateLength;
+                    currentScore = score;
+                    if (score > bestScore) {
+                        System.arraycopy(current, 0, best, 0, currentLength);
+                        bestLength = currentLength;
+                        bestScore = score;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Publishes the best plan of this island and takes over a better one from the previous island.
+         */
+        private void migrate() {
+            if (bestScore > published) {
+                board.set(index, new Migrant(best, bestLength, bestScore));
+                published = bestScore;
+            }
+            Migrant neighbour = board.get((index + islands - 1) % islands);
+            if (neighbour.score > currentScore && neighbour.score > bestScore) {
+                adopt(neighbour);
+                System.arraycopy(neighbour.plan, 0, best, 0, neighbour.length);
+                bestLength = neighbour.length;
+                bestScore = neighbour.score;
+            }
+        }
+
+        private void adopt(Migrant migrant) {
+            System.arraycopy(migrant.plan, 0, current, 0, migrant.length);
+            currentLength = migrant.length;
+            currentScore = migrant.score;
+        }
+    }
+}
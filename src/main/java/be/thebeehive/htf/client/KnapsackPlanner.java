@@ -0,0 +1,302 @@
+package be.thebeehive.htf.client;
+
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Dynamic-programming planner over (slot, quantized hull, quantized crew).
+ * <p>
+ * Filling the slots of a round is a knapsack with clamping: every action and every effect moves the values
+ * with the rules of {@link FixedValues#add(FixedValues)}. This planner fills the slots one at a time. After
+ * every slot it keeps one state per cell of a {@code buckets x buckets} grid of hull and crew, namely the
+ * state with the best score so far. Each state keeps its exact values and the set of actions on its path,
+ * so an action is never used twice and an effect is blocked exactly when its blocker is on the path by the
+ * effect's step. Every state is also scored as a finished plan, with the effects after its slot, and the
+ * best of those wins.
+ * <p>
+ * States that share a cell are merged, so the search is not exhaustive. The work per round is
+ * {@code slots x buckets^2 x candidates}, however many plans there are. Only two layers of states are
+ * kept; the path back is one int per slot and cell, so memory is {@code O(slots x buckets^2)}. At most
+ * 64 candidate actions are considered, in the {@link CandidateOrder}: the plan of the seed planner, then the
+ * actions with the most gain, blocked damage included. The result is simulated exactly and compared with the
+ * seed plan, so it is never worse than the seed.
+ * <p>
+ * An instance reuses its scratch state between rounds and must not be used by two threads at the same time.
+ */
+public class KnapsackPlanner implements ActionPlanner {
+
+    public static final int DEFAULT_BUCKETS = 32;
+
+    private static final int MAX_CANDIDATES = 64;
+
+    private final ActionPlanner seed;
+    private final int buckets;
+    private final int cells;
+
+    private final RoundModel model = new RoundModel();
+    private final RoundModel.Simulator simulator = model.newSimulator();
+    private final FixedValues values = new FixedValues();
+
+    // Candidate k is action candidates[k], its bit in a path mask is 1L << k
+    private int[] candidates = new int[0];
+    private long[] candidateKey = new long[0];
+    private int candidateCount;
+    // Bits of the candidates blocking effect e
+    private long[] effectMask = new long[0];
+
+    // Two layers of states, indexed by cell
+    private final long[][] hull = new long[2][];
+    private final long[][] maxHull = new long[2][];
+    private final long[][] crew = new long[2][];
+    private final long[][] maxCrew = new long[2][];
+    private final long[][] score = new long[2][];
+    private final long[][] mask = new long[2][];
+    private final int[][] stamp = new int[2][];
+    private final int[][] occupied = new int[2][];
+    private final int[] occupiedCount = new int[2];
+    private int generation;
+
+    // Path back to the previous layer, indexed by slot * cells + cell
+    private int[] parent = new int[0];
+    private int[] choice = new int[0];
+
+    private int[] plan = new int[0];
+    private int[] bestPlan = new int[0];
+    private long lastScore;
+
+    public KnapsackPlanner() {
+        this(new DecisionEngine(), DEFAULT_BUCKETS);
+    }
+
+    /**
+     * @param seed    the planner whose plan is the fallback and whose actions are candidates first.
+     * @param buckets the number of buckets per metric.
+     */
+    public KnapsackPlanner(ActionPlanner seed, int buckets) {
+        if (buckets < 1) {
+            throw new IllegalArgumentException("buckets must be at least 1");
+        }
+        this.seed = seed;
+        this.buckets = buckets;
+        this.cells = buckets * buckets;
+        for (int l = 0; l < 2; l++) {
+            hull[l] = new long[cells];
+            maxHull[l] = new long[cells];
+            crew[l] = new long[cells];
+            maxCrew[l] = new long[cells];
+            score[l] = new long[cells];
+            mask[l] = new long[cells];
+            stamp[l] = new int[cells];
+            occupied[l] = new int[cells];
+        }
+    }
+
+    @Override
+    public List<Long> decideActions(GameRoundServerMessage msg, int maxActionsHint) {
+        List<Long> greedy = seed.decideActions(msg, maxActionsHint);
+        RoundModel m = model.load(msg);
+        int cap = Math.max(0, Math.min(maxActionsHint, m.actionCount));
+        ensureCapacity(m, cap);
+
+        int seedLength = Math.min(m.toPlan(greedy, bestPlan), cap);
+        long bestScore = simulator.evaluate(bestPlan, seedLength);
+        int bestLength = seedLength;
+
+        int length = search(m, cap, seedLength);
+        if (length >= 0) {
+            long s = simulator.evaluate(plan, length);
+            if (s > bestScore) {
+                System.arraycopy(plan, 0, bestPlan, 0, length);
+                bestScore = s;
+                bestLength = length;
+            }
+        }
+        lastScore = bestScore;
+        return m.toActionIds(bestPlan, bestLength);
+    }
+
+    /**
+     * @return the score of the plan returned by the last call, see {@link RoundModel#score(FixedValues)}.
+     */
+    public long getLastScore() {
+        return lastScore;
+    }
+
+    /**
+     * Runs the DP and writes the best plan it found to {@link #plan}.
+     *
+     * @param seedLength the length of the seed plan in {@link #bestPlan}.
+     * @return the length of the plan, or -1 if every plan dies.
+     */
+    private int search(RoundModel m, int cap, int seedLength) {
+        selectCandidates(m, seedLength);
+
+        long hullWidth = Math.max(1L, 2 * m.start.getMaxHullStrength() / buckets);
+        long crewWidth = Math.max(1L, 2 * m.start.getMaxCrewHealth() / buckets);
+
+        int cur = 0;
+        clearLayer(cur);
+        values.set(m.start);
+        if (values.isDead()) {
+            return -1;
+        }
+        int startCell = cell(values, hullWidth, crewWidth);
+        offer(cur, startCell, values, 0L, 0, -1, -1);
+
+        long bestScore = finish(m, 0, startCell, cur);
+        int bestSlot = bestScore == RoundModel.DEAD_SCORE ? -1 : 0;
+        int bestCell = startCell;
+
+        for (int s = 1; s <= cap; s++) {
+            int next = cur ^ 1;
+            clearLayer(next);
+            for (int i = 0; i < occupiedCount[cur]; i++) {
+                int c = occupied[cur][i];
+                long pathMask = mask[cur][c];
+                for (int k = 0; k < candidateCount; k++) {
+                    long bit = 1L << k;
+                    if ((pathMask & bit) != 0) continue;
+                    values.set(hull[cur][c], maxHull[cur][c], crew[cur][c], maxCrew[cur][c]);
+                    m.addAction(values, candidates[k]);
+                    if (values.isDead()) continue;
+                    long newMask = pathMask | bit;
+                    if (!applyEffects(m, s, newMask)) continue;
+                    offer(next, cell(values, hullWidth, crewWidth), values, newMask, s, c, k);
+                }
+            }
+            cur = next;
+            for (int i = 0; i < occupiedCount[cur]; i++) {
+                int c = occupied[cur][i];
+                long f = finish(m, s, c, cur);
+                if (f > bestScore) {
+                    bestScore = f;
+                    bestSlot = s;
+                    bestCell = c;
+                }
+            }
+        }
+        if (bestSlot < 0) {
+            return -1;
+        }
+
+        for (int s = bestSlot, c = bestCell; s >= 1; s--) {
+            int at = s * cells + c;
+            plan[s - 1] = candidates[choice[at]];
+            c = parent[at];
+        }
+        return bestSlot;
+    }
+
+    /**
+     * Applies the effects of a step that the path does not block.
+     *
+     * @return false if the submarine dies.
+     */
+    private boolean applyEffects(RoundModel m, int step, long pathMask) {
+        if (step > m.maxEffectStep) {
+            return true;
+        }
+        for (int k = m.stepStart[step], end = m.stepStart[step + 1]; k < end; k++) {
+            int e = m.stepEffects[k];
+            if ((pathMask & effectMask[e]) == 0) {
+                m.addEffect(values, e);
+                if (values.isDead()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Scores the state in a cell as a finished plan of the given length.
+     */
+    private long finish(RoundModel m, int length, int c, int layer) {
+        values.set(hull[layer][c], maxHull[layer][c], crew[layer][c], maxCrew[layer][c]);
+        long pathMask = mask[layer][c];
+        for (int s = length + 1; s <= m.maxEffectStep; s++) {
+            if (!applyEffects(m, s, pathMask)) {
+                return RoundModel.DEAD_SCORE;
+            }
+        }
+        return RoundModel.score(values);
+    }
+
+    private void offer(int layer, int c, FixedValues v, long pathMask, int slot, int from, int candidate) {
+        long s = RoundModel.score(v);
+        if (stamp[layer][c] == generation) {
+            if (s <= score[layer][c]) {
+                return;
+            }
+        } else {
+            stamp[layer][c] = generation;
+            occupied[layer][occupiedCount[layer]++] = c;
+        }
+        hull[layer][c] = v.getHullStrength();
+        maxHull[layer][c] = v.getMaxHullStrength();
+        crew[layer][c] = v.getCrewHealth();
+        maxCrew[layer][c] = v.getMaxCrewHealth();
+        score[layer][c] = s;
+        mask[layer][c] = pathMask;
+        if (slot > 0) {
+            parent[slot * cells + c] = from;
+            choice[slot * cells + c] = candidate;
+        }
+    }
+
+    private void clearLayer(int layer) {
+        // A new generation empties the layer without touching its arrays
+        if (++generation == 0) {
+            Arrays.fill(stamp[0], 0);
+            Arrays.fill(stamp[1], 0);
+            generation = 1;
+        }
+        occupiedCount[layer] = 0;
+    }
+
+    private int cell(FixedValues v, long hullWidth, long crewWidth) {
+        int h = (int) Math.min(buckets - 1, v.getHullStrength() / hullWidth);
+        int c = (int) Math.min(buckets - 1, v.getCrewHealth() / crewWidth);
+        return h * buckets + c;
+    }
+
+    /**
+     * Picks at most {@link #MAX_CANDIDATES} actions, in the {@link CandidateOrder}.
+     *
+     * @param seedLength the length of the seed plan in {@link #bestPlan}.
+     */
+    private void selectCandidates(RoundModel m, int seedLength) {
+        int n = m.actionCount;
+        CandidateOrder.sort(m, bestPlan, seedLength, candidates, candidateKey);
+        candidateCount = Math.min(n, MAX_CANDIDATES);
+
+        for (int e = 0; e < m.effectCount; e++) {
+            effectMask[e] = 0L;
+        }
+        for (int k = 0; k < candidateCount; k++) {
+            int e = m.actionEffect[candidates[k]];
+            if (e >= 0) {
+                effectMask[e] |= 1L << k;
+            }
+        }
+    }
+
+    private void ensureCapacity(RoundModel m, int cap) {
+        int n = m.actionCount;
+        if (candidates.length < n) {
+            candidates = new int[n];
+            candidateKey = new long[n];
+            plan = new int[n];
+            bestPlan = new int[n];
+        }
+        if (effectMask.length < m.effectCount) {
+            effectMask = new long[m.effectCount];
+        }
+        if (parent.length < (cap + 1) * cells) {
+            parent = new int[(cap + 1) * cells];
+            choice = new int[(cap + 1) * cells];
+        }
+    }
+}
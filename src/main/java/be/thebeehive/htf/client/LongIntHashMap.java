@@ -0,0 +1,143 @@
+package be.thebeehive.htf.client;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from {@code long} keys to {@code int} values, without boxing.
+ * <p>
+ * Meant to be cleared and refilled every round: {@link #clear()} keeps the table, which only grows
+ * to the high-water mark, so a steady-state round does not allocate.
+ */
+public final class LongIntHashMap {
+
+    private long[] keys;
+    private int[] values;
+    // used[i] == generation when slot i holds a key, so clearing is O(1)
+    private int[] used;
+    private int generation = 1;
+    private int mask;
+    private int size;
+
+    public LongIntHashMap() {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize the number of keys to hold without resizing.
+     */
+    public LongIntHashMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * Associates a value with a key, replacing any previous value.
+     *
+     * @param key   the key.
+     * @param value the value.
+     */
+    public void put(long key, int value) {
+        if ((size + 1) * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        int slot = slot(key);
+        if (used[slot] != generation) {
+            used[slot] = generation;
+            keys[slot] = key;
+            size++;
+        }
+        values[slot] = value;
+    }
+
+    /**
+     * Associates a value with a key only if the key is not present yet.
+     *
+     * @param key   the key.
+     * @param value the value.
+     */
+    public void putIfAbsent(long key, int value) {
+        if ((size + 1) * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        int slot = slot(key);
+        if (used[slot] != generation) {
+            used[slot] = generation;
+            keys[slot] = key;
+            values[slot] = value;
+            size++;
+        }
+    }
+
+    /**
+     * Returns the value of a key.
+     *
+     * @param key          the key.
+     * @param defaultValue the value returned when the key is absent.
+     * @return the value, or defaultValue.
+     */
+    public int get(long key, int defaultValue) {
+        int slot = slot(key);
+        return used[slot] == generation ? values[slot] : defaultValue;
+    }
+
+    /**
+     * Removes all keys, keeping the allocated table.
+     */
+    public void clear() {
+        size = 0;
+        if (++generation == 0) {
+            Arrays.fill(used, 0);
+            generation = 1;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int slot(long key) {
+        int slot = mix(key) & mask;
+        while (used[slot] == generation && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        int[] oldUsed = used;
+        int oldGeneration = generation;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i] == oldGeneration) {
+                int slot = slot(oldKeys[i]);
+                used[slot] = generation;
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+                size++;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        used = new int[capacity];
+        generation = 1;
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = 16;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
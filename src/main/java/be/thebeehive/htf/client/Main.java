@@ -2,22 +2,33 @@ package be.thebeehive.htf.client;
 
 import be.thebeehive.htf.library.EnvironmentType;
 import be.thebeehive.htf.library.HtfClient;
+import be.thebeehive.htf.library.LatencyHistograms;
+import be.thebeehive.htf.library.PipelinedHtfClient;
+import be.thebeehive.htf.library.ReconnectSupervisor;
 
 import java.net.URISyntaxException;
+import java.util.concurrent.TimeUnit;
 
 public class Main {
 
     /**
      * The entry point of the application.
      * Start an HtfClient which connects to the on-board computer of the submarine.
+     * Rounds are decided by the greedy {@link DecisionEngine}; pass {@code anytime} as the first argument to
+     * search every round for up to {@link AnytimePlanner#DEFAULT_BUDGET_MILLIS} ms with {@link AnytimePlanner}.
      */
     public static void main(String[] args) throws URISyntaxException {
-        HtfClient client = new HtfClient(
+        boolean anytime = args.length > 0 && "anytime".equals(args[0]);
+        HtfClient client = new PipelinedHtfClient(
                 "wss://htf.b9s.dev/ws",
                 "headroom3884",
                 EnvironmentType.SIMULATION,
-                new MyClient()
+                anytime ? new MyClient(new AnytimePlanner()) : new MyClient()
         );
+        new ReconnectSupervisor().supervise(client);
+        LatencyHistograms latency = new LatencyHistograms();
+        client.setLatencyListener(latency);
+        latency.startSummary(30, TimeUnit.SECONDS);
         Runtime.getRuntime().addShutdownHook(new Thread(client::close));
         client.connect();
     }
@@ -0,0 +1,370 @@
+package be.thebeehive.htf.client;
+
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Monte Carlo tree search over action plans, with tree parallelism.
+ * <p>
+ * Level d of the tree picks the action of slot d + 1, or ends the plan. Worker threads share one tree. They
+ * descend it with UCT, expand a node once it has been visited, finish the plan with a random rollout, and
+ * score it with the {@link RoundModel} simulation that {@link DecisionEngine} checks its plans with. Visit
+ * counts and reward sums are atomic counters. A worker counts its visits on the way down, which acts as a
+ * virtual loss and spreads the workers over the tree without locks. Children are published once per node
+ * through a compare-and-set on its state.
+ * <p>
+ * The search runs until the deadline or until the calling thread is interrupted, so it can use whatever time
+ * is left before the answer is due. Every simulated plan is a candidate; the best one is returned if it beats
+ * the plan of the seed planner. At most {@link #MAX_BRANCHING} actions are considered per level, in the
+ * {@link CandidateOrder}: the seed plan first, then the actions with the most gain, blocked damage included.
+ * <p>
+ * One search runs at a time, so a planner must not decide two rounds concurrently.
+ */
+public class MctsPlanner implements ActionPlanner, AutoCloseable {
+
+    public static final int DEFAULT_MAX_NODES = 1 << 18;
+
+    static final int MAX_BRANCHING = 32;
+
+    private static final int DEADLINE_CHECK_INTERVAL = 32;
+    // Rewards are stored in millionths
+    private static final long REWARD_SCALE = 1_000_000L;
+    private static final double EXPLORATION = 0.7;
+    private static final int NEW = 0, EXPANDING = 1, EXPANDED = 2;
+
+    private final ActionPlanner seed;
+    private final int threads;
+    private final long budgetNanos;
+    private final SearchPool workers;
+
+    // The tree, nodes are allocated from nextNode
+    private final int maxNodes;
+    private final int[] nodeAction;
+    private final int[] childStart;
+    private final int[] childCount;
+    private final AtomicIntegerArray state;
+    private final AtomicLongArray visits;
+    private final AtomicLongArray rewards;
+    private final AtomicInteger nextNode = new AtomicInteger();
+
+    // The round being searched
+    private RoundModel model;
+    private int cap;
+    private int[] candidates = new int[0];
+    private long[] candidateKey = new long[0];
+    private int candidateCount;
+    private long seedScore;
+    private long rewardWidth;
+    private long deadlineNanos;
+    private Worker[] searchers = new Worker[0];
+
+    private long lastRollouts;
+    private int lastNodes;
+
+    public MctsPlanner() {
+        this(new DecisionEngine(), Runtime.getRuntime().availableProcessors(), AnytimePlanner.DEFAULT_BUDGET_MILLIS,
+                DEFAULT_MAX_NODES);
+    }
+
+    /**
+     * @param seed         the planner providing the plan to beat.
+     * @param threads      the number of worker threads sharing the tree.
+     * @param budgetMillis the time budget per round in milliseconds, including the seed planner.
+     * @param maxNodes     the maximum number of tree nodes; once they are used up the tree stops growing.
+     */
+    public MctsPlanner(ActionPlanner seed, int threads, long budgetMillis, int maxNodes) {
+        this.seed = seed;
+        this.threads = Math.max(1, threads);
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        this.maxNodes = Math.max(1, maxNodes);
+        this.nodeAction = new int[this.maxNodes];
+        this.childStart = new int[this.maxNodes];
+        this.childCount = new int[this.maxNodes];
+        this.state = new AtomicIntegerArray(this.maxNodes);
+        this.visits = new AtomicLongArray(this.maxNodes);
+        this.rewards = new AtomicLongArray(this.maxNodes);
+        this.workers = new SearchPool("htf-mcts", this.threads);
+    }
+
+    @Override
+    public List<Long> decideActions(GameRoundServerMessage msg, int maxActionsHint) {
+        return decideActions(msg, maxActionsHint, System.nanoTime() + budgetNanos);
+    }
+
+    /**
+     * Decides the actions of a round, searching until the given deadline or until the calling thread is
+     * interrupted. The interrupt flag is kept.
+     *
+     * @param msg            the current game round.
+     * @param maxActionsHint the maximum number of actions that may be returned.
+     * @param deadlineNanos  the {@link System#nanoTime()} at which the best plan so far must be returned.
+     * @return the ordered action ids.
+     */
+    public List<Long> decideActions(GameRoundServerMessage msg, int maxActionsHint, long deadlineNanos) {
+        List<Long> greedy = seed.decideActions(msg, maxActionsHint);
+        RoundModel m = RoundModel.of(msg);
+        int n = m.actionCount;
+        int c = Math.min(maxActionsHint, n);
+        if (c <= 0 || m.start.isDead()) {
+            return greedy;
+        }
+
+        int[] best = new int[Math.max(n, greedy.size())];
+        int bestLength = Math.min(c, m.toPlan(greedy, best));
+        long bestScore = m.evaluate(best, bestLength);
+
+        prepare(m, c, best, bestLength, bestScore, deadlineNanos);
+        // Workers that are stopped early still hold complete plans
+        workers.runAll(searchers);
+
+        long rollouts = 0;
+        for (int w = 0; w < threads; w++) {
+            Worker worker = searchers[w];
+            rollouts += worker.rollouts;
+            if (worker.bestScore > bestScore) {
+                bestScore = worker.bestScore;
+                bestLength = worker.bestLength;
+                System.arraycopy(worker.best, 0, best, 0, bestLength);
+            }
+        }
+        this.lastRollouts = rollouts;
+        this.lastNodes = Math.min(nextNode.get(), maxNodes);
+        this.model = null;
+        return m.toActionIds(best, bestLength);
+    }
+
+    /**
+     * @return the number of rollouts of the last call, over all workers.
+     */
+    public long getLastRollouts() {
+        return lastRollouts;
+    }
+
+    /**
+     * @return the number of tree nodes of the last call.
+     */
+    public int getLastNodes() {
+        return lastNodes;
+    }
+
+    /**
+     * Stops the worker threads.
+     */
+    @Override
+    public void close() {
+        workers.close();
+    }
+
+    private void prepare(RoundModel m, int c, int[] seedPlan, int seedLength, long score, long deadline) {
+        this.model = m;
+        this.cap = c;
+        this.seedScore = score;
+        // A reward of 0.5 is the seed plan, 0 and 1 are this far below and above it
+        this.rewardWidth = Math.max(FixedValues.SCALE, (m.start.getMaxHullStrength() + m.start.getMaxCrewHealth()) / 10);
+        this.deadlineNanos = deadline;
+        selectCandidates(m, seedPlan, seedLength);
+
+        // Clear the nodes of the previous search
+        for (int i = 0, used = Math.min(nextNode.get(), maxNodes); i < used; i++) {
+            state.set(i, NEW);
+            visits.set(i, 0);
+            rewards.set(i, 0);
+        }
+        nodeAction[0] = -1;
+        nextNode.set(1);
+
+        if (searchers.length != threads) {
+            searchers = new Worker[threads];
+            for (int w = 0; w < threads; w++) {
+                searchers[w] = new Worker();
+            }
+        }
+        for (int w = 0; w < threads; w++) {
+            searchers[w].reset(m, seedPlan, seedLength, score, new Random(31L * m.start.getHullStrength() + w));
+        }
+    }
+
+    private void selectCandidates(RoundModel m, int[] seedPlan, int seedLength) {
+        int n = m.actionCount;
+        if (candidates.length < n) {
+            candidates = new int[n];
+            candidateKey = new long[n];
+        }
+        CandidateOrder.sort(m, seedPlan, seedLength, candidates, candidateKey);
+        candidateCount = Math.min(n, MAX_BRANCHING);
+    }
+
+    private long reward(long score) {
+        if (score == RoundModel.DEAD_SCORE) {
+            return 0;
+        }
+        double r = 0.5 + (double) (score - seedScore) / (2.0 * rewardWidth);
+        return (long) (Math.max(0.0, Math.min(1.0, r)) * REWARD_SCALE);
+    }
+
+    private final class Worker implements Runnable {
+
+        private RoundModel.Simulator simulator;
+        private Random random;
+        private int[] plan = new int[0];
+        private int[] path = new int[0];
+        private boolean[] used = new boolean[0];
+        private int[] best = new int[0];
+        private int bestLength;
+        private long bestScore;
+        private long rollouts;
+
+        void reset(RoundModel m, int[] seedPlan, int seedLength, long score, Random random) {
+            int n = m.actionCount;
+            if (plan.length < n) {
+                plan = new int[n];
+                used = new boolean[n];
+                best = new int[n];
+            }
+            if (path.length < cap + 2) {
+                path = new int[cap + 2];
+            }
+            this.simulator = m.newSimulator();
+            this.random = random;
+            System.arraycopy(seedPlan, 0, best, 0, seedLength);
+            this.bestLength = seedLength;
+            this.bestScore = score;
+            this.rollouts = 0;
+        }
+
+        @Override
+        public void run() {
+            while (!workers.isStopped()) {
+                if (rollouts % DEADLINE_CHECK_INTERVAL == 0 && System.nanoTime() - deadlineNanos >= 0) {
+                    return;
+                }
+                iterate();
+                rollouts++;
+            }
+        }
+
+        private void iterate() {
+            RoundModel m = model;
+            for (int k = 0; k < candidateCount; k++) {
+                used[candidates[k]] = false;
+            }
+
+            // Selection, counting the visit on the way down
+            int node = 0;
+            int depth = 0;
+            int length = 0;
+            boolean ended = false;
+            path[depth++] = node;
+            visits.incrementAndGet(node);
+            while (!ended) {
+                int s = state.get(node);
+                if (s != EXPANDED) {
+                    if (s == NEW && length < cap && visits.get(node) > 1) {
+                        expand(node);
+                    }
+                    break;
+                }
+                node = select(node);
+                path[depth++] = node;
+                visits.incrementAndGet(node);
+                int a = nodeAction[node];
+                if (a < 0) {
+                    ended = true;
+                } else {
+                    plan[length++] = a;
+                    used[a] = true;
+                    ended = length >= cap;
+                }
+            }
+
+            // Rollout: random actions up to a random length
+            if (!ended) {
+                int target = length + random.nextInt(cap - length + 1);
+                while (length < target) {
+                    int a = candidates[random.nextInt(candidateCount)];
+                    if (used[a]) {
+                        // Take the next unused candidate instead of retrying
+                        int k = 0;
+                        while (k < candidateCount && used[candidates[k]]) k++;
+                        if (k == candidateCount) break;
+                        a = candidates[k];
+                    }
+                    plan[length++] = a;
+                    used[a] = true;
+                }
+            }
+
+            long score = simulator.evaluate(plan, length);
+            if (score > bestScore) {
+                bestScore = score;
+                bestLength = length;
+                System.arraycopy(plan, 0, best, 0, length);
+            }
+
+            long r = reward(score);
+            for (int i = 0; i < depth; i++) {
+                rewards.addAndGet(path[i], r);
+            }
+        }
+
+        private int select(int node) {
+            int start = childStart[node];
+            int count = childCount[node];
+            double logParent = Math.log(Math.max(1, visits.get(node)));
+            int best = -1;
+            double bestUcb = Double.NEGATIVE_INFINITY;
+            int offset = random.nextInt(count);
+            for (int i = 0; i < count; i++) {
+                int child = start + (i + offset) % count;
+                if (nodeAction[child] >= 0 && used[nodeAction[child]]) {
+                    continue;
+                }
+                long v = visits.get(child);
+                if (v == 0) {
+                    return child;
+                }
+                double mean = rewards.get(child) / (double) (v * REWARD_SCALE);
+                double ucb = mean + EXPLORATION * Math.sqrt(logParent / v);
+                if (ucb > bestUcb) {
+                    bestUcb = ucb;
+                    best = child;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Gives a node a child per unused candidate plus one that ends the plan; only one thread does so.
+         */
+        private void expand(int node) {
+            if (!state.compareAndSet(node, NEW, EXPANDING)) {
+                return;
+            }
+            int count = 1;
+            for (int k = 0; k < candidateCount; k++) {
+                if (!used[candidates[k]]) count++;
+            }
+            int start = nextNode.getAndAdd(count);
+            if (start + count > maxNodes) {
+                // The tree is full, this node stays a leaf
+                return;
+            }
+            int child = start;
+            nodeAction[child++] = -1;
+            for (int k = 0; k < candidateCount; k++) {
+                int a = candidates[k];
+                if (!used[a]) nodeAction[child++] = a;
+            }
+            childStart[node] = start;
+            childCount[node] = count;
+            // Publishes the children written above
+            state.set(node, EXPANDED);
+        }
+    }
+}
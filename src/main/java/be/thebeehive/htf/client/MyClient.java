@@ -2,20 +2,47 @@ package be.thebeehive.htf.client;
 
 import be.thebeehive.htf.library.HtfClient;
 import be.thebeehive.htf.library.HtfClientListener;
+import be.thebeehive.htf.library.RoundLog;
 import be.thebeehive.htf.library.protocol.client.SelectActionsClientMessage;
 import be.thebeehive.htf.library.protocol.server.ErrorServerMessage;
 import be.thebeehive.htf.library.protocol.server.GameEndedServerMessage;
 import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
 import be.thebeehive.htf.library.protocol.server.WarningServerMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
 
 public class MyClient implements HtfClientListener {
-    private final DecisionEngine engine = new DecisionEngine();
+    private static final Logger LOGGER = LoggerFactory.getLogger(MyClient.class);
+
+    private final ActionPlanner engine;
+    private final RoundLog roundLog;
     private int maxActionsCap = 5;
-    
+
+    public MyClient() {
+        this(new DecisionEngine());
+    }
+
+    /**
+     * @param engine the planner that decides the actions of every round,
+     *               e.g. {@link DecisionEngine} or {@link BranchAndBoundPlanner}.
+     */
+    public MyClient(ActionPlanner engine) {
+        this(engine, RoundLog.getDefault());
+    }
+
+    /**
+     * @param engine   the planner that decides the actions of every round.
+     * @param roundLog the log of the round status lines, written asynchronously so it does not slow down rounds.
+     */
+    public MyClient(ActionPlanner engine, RoundLog roundLog) {
+        this.engine = engine;
+        this.roundLog = roundLog;
+    }
+
     /**
      * You tried to perform an action that is not allowed.
      * An error occurred, and we are unable to recover from this.
@@ -23,7 +50,7 @@ public class MyClient implements HtfClientListener {
      */
     @Override
     public void onErrorServerMessage(HtfClient client, ErrorServerMessage msg) throws Exception {
-        System.err.println("ERROR: " + msg.getMsg());
+        LOGGER.error("ERROR: {}", msg.getMsg());
     }
 
     /**
@@ -31,7 +58,7 @@ public class MyClient implements HtfClientListener {
      */
     @Override
     public void onGameEndedServerMessage(HtfClient client, GameEndedServerMessage msg) throws Exception {
-        System.out.println("Game ended at round " + msg.getRound());
+        LOGGER.info("Game ended at round {}", msg.getRound());
     }
 
     /**
@@ -44,10 +71,10 @@ public class MyClient implements HtfClientListener {
         GameRoundServerMessage.Submarine sub = msg.getOurSubmarine();
         if (sub != null && sub.getValues() != null) {
             GameRoundServerMessage.Values v = sub.getValues();
-            System.out.println(String.format("Round %d: Hull: %s/%s, Crew: %s/%s", 
+            roundLog.log("Round {}: Hull: {}/{}, Crew: {}/{}",
                 msg.getRound(),
                 v.getHullStrength(), v.getMaxHullStrength(),
-                v.getCrewHealth(), v.getMaxCrewHealth()));
+                v.getCrewHealth(), v.getMaxCrewHealth());
         }
         
         int cap = Math.min(maxActionsCap, msg.getActions() != null ? msg.getActions().size() : 0);
@@ -55,7 +82,7 @@ public class MyClient implements HtfClientListener {
 
         // Improved fallback: if no actions selected, pick safest actions
         if (selected.isEmpty() && msg.getActions() != null && !msg.getActions().isEmpty()) {
-            System.out.println("WARNING: No actions selected by engine, using fallback!");
+            LOGGER.warn("No actions selected by engine, using fallback!");
             // Try to find the least harmful or most beneficial action
             List<Long> fallbackList = msg.getActions().stream()
                     .sorted(Comparator.comparing(a -> {
@@ -79,7 +106,7 @@ public class MyClient implements HtfClientListener {
             }
         }
         
-        System.out.println(String.format("Selected %d actions: %s", selected.size(), selected));
+        roundLog.log("Selected {} actions: {}", selected.size(), selected);
         client.send(new SelectActionsClientMessage(msg.getRoundId(), selected));
     }
 
@@ -91,10 +118,10 @@ public class MyClient implements HtfClientListener {
     @Override
     public void onWarningServerMessage(HtfClient client, WarningServerMessage msg) throws Exception {
         String m = msg.getMsg() == null ? "" : msg.getMsg().toLowerCase();
-        System.out.println("WARNING: " + msg.getMsg());
+        LOGGER.warn("WARNING: {}", msg.getMsg());
         if (m.contains("too many") || m.contains("maximum") || m.contains("exceeded")) {
             maxActionsCap = Math.max(1, maxActionsCap - 1);
-            System.out.println("Adjusting maxActionsCap to " + maxActionsCap);
+            LOGGER.info("Adjusting maxActionsCap to {}", maxActionsCap);
         }
     }
 }
@@ -0,0 +1,244 @@
+package be.thebeehive.htf.client;
+
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Scores batches of candidate plans on a {@link ForkJoinPool} and reduces them to the best one.
+ * <p>
+ * Candidates are stored flat: candidate i occupies {@code plans[i * stride .. i * stride + lengths[i])}.
+ * The reduction keeps the highest score and, on ties, the lowest candidate index, so the chosen plan does not
+ * depend on the number of threads or on how the work was split.
+ * <p>
+ * As a planner it runs a steepest-ascent search from the seed plan: every iteration builds the full
+ * neighbourhood of the current plan (all swaps, replacements, insertions and removals), evaluates it in
+ * parallel and moves to the best neighbour until none improves. The neighbourhood holds about
+ * {@code 2 x cap x actions} plans of {@code cap} actions each; if that exceeds {@link #MAX_NEIGHBOURHOOD_SIZE}
+ * ints, e.g. for a very large action cap, the seed plan is returned unchanged.
+ */
+public class ParallelPlanEvaluator implements ActionPlanner, AutoCloseable {
+
+    /**
+     * The largest neighbourhood, in ints of candidate plans, that is searched: 64 MiB.
+     */
+    public static final int MAX_NEIGHBOURHOOD_SIZE = 1 << 24;
+
+    private static final int SPLIT_THRESHOLD = 64;
+    private static final int MAX_ITERATIONS = 32;
+
+    private final ForkJoinPool pool;
+    private final ActionPlanner seed;
+
+    private long lastEvaluations;
+
+    public ParallelPlanEvaluator() {
+        this(new DecisionEngine(), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param seed    the planner providing the initial plan.
+     * @param threads the number of worker threads.
+     */
+    public ParallelPlanEvaluator(ActionPlanner seed, int threads) {
+        this.seed = seed;
+        this.pool = new ForkJoinPool(Math.max(1, threads));
+    }
+
+    /**
+     * Scores all candidates in parallel.
+     *
+     * @param model   the round to simulate.
+     * @param plans   the flattened candidate plans.
+     * @param stride  the distance between the starts of two candidates in plans.
+     * @param lengths the length of every candidate.
+     * @param count   the number of candidates.
+     * @return the index of the best candidate, or -1 if count is 0.
+     */
+    public int best(RoundModel model, int[] plans, int stride, int[] lengths, int count) {
+        if (count <= 0) {
+            return -1;
+        }
+        Result result = pool.invoke(new EvaluateTask(model, plans, stride, lengths, 0, count));
+        return result.index;
+    }
+
+    @Override
+    public List<Long> decideActions(GameRoundServerMessage msg, int maxActionsHint) {
+        List<Long> greedy = seed.decideActions(msg, maxActionsHint);
+        RoundModel model = RoundModel.of(msg);
+        int n = model.actionCount;
+        int cap = Math.min(maxActionsHint, n);
+        // Upper bound of the neighbourhood size: swaps + replacements + insertions + removals
+        long maxCandidates = (long) cap * cap + (long) cap * n + (cap + 1L) * n + cap;
+        if (cap <= 0 || maxCandidates * cap > MAX_NEIGHBOURHOOD_SIZE) {
+            this.lastEvaluations = 0;
+            return greedy;
+        }
+
+        RoundModel.Simulator simulator = model.newSimulator();
+        int[] current = new int[Math.max(n, greedy.size())];
+        int currentLength = Math.min(cap, model.toPlan(greedy, current));
+        long currentScore = simulator.evaluate(current, currentLength);
+
+        int[] plans = new int[(int) maxCandidates * cap];
+        int[] lengths = new int[(int) maxCandidates];
+        int[] candidate = new int[cap];
+        boolean[] used = new boolean[n];
+        long evaluations = 1;
+
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            int count = neighbours(current, currentLength, cap, n, used, plans, lengths);
+            evaluations += count;
+            int best = best(model, plans, cap, lengths, count);
+            if (best < 0) {
+                break;
+            }
+            System.arraycopy(plans, best * cap, candidate, 0, lengths[best]);
+            long score = simulator.evaluate(candidate, lengths[best]);
+            if (score <= currentScore) {
+                break;
+            }
+            System.arraycopy(candidate, 0, current, 0, lengths[best]);
+            currentLength = lengths[best];
+            currentScore = score;
+        }
+
+        this.lastEvaluations = evaluations;
+        return model.toActionIds(current, currentLength);
+    }
+
+    /**
+     * Writes every swap, replacement, insertion and removal of the plan as a candidate.
+     *
+     * @return the number of candidates written.
+     */
+    private static int neighbours(int[] plan, int length, int cap, int n, boolean[] used,
+                                  int[] plans, int[] lengths) {
+        for (int i = 0; i < length; i++) used[plan[i]] = true;
+        int count = 0;
+
+        for (int i = 0; i < length; i++) {
+            for (int j = i + 1; j < length; j++) {
+                int base = count * cap;
+                System.arraycopy(plan, 0, plans, base, length);
+                plans[base + i] = plan[j];
+                plans[base + j] = plan[i];
+                lengths[count++] = length;
+            }
+        }
+        for (int a = 0; a < n; a++) {
+            if (used[a]) continue;
+            for (int i = 0; i < length; i++) {
+                int base = count * cap;
+                System.arraycopy(plan, 0, plans, base, length);
+                plans[base + i] = a;
+                lengths[count++] = length;
+            }
+            if (length < cap) {
+                for (int i = 0; i <= length; i++) {
+                    int base = count * cap;
+                    System.arraycopy(plan, 0, plans, base, i);
+                    plans[base + i] = a;
+                    System.arraycopy(plan, i, plans, base + i + 1, length - i);
+                    lengths[count++] = length + 1;
+                }
+            }
+        }
+        for (int i = 0; i < length; i++) {
+            int base = count * cap;
+            System.arraycopy(plan, 0, plans, base, i);
+            System.arraycopy(plan, i + 1, plans, base + i, length - i - 1);
+            lengths[count++] = length - 1;
+        }
+
+        for (int i = 0; i < length; i++) used[plan[i]] = false;
+        return count;
+    }
+
+    /**
+     * @return the number of plans evaluated in the last round.
+     */
+    public long getLastEvaluations() {
+        return lastEvaluations;
+    }
+
+    /**
+     * @return the number of worker threads.
+     */
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    private static final class Result {
+
+        private final long score;
+        private final int index;
+
+        private Result(long score, int index) {
+            this.score = score;
+            this.index = index;
+        }
+
+        private static Result better(Result a, Result b) {
+            if (a.score != b.score) {
+                return a.score > b.score ? a : b;
+            }
+            return a.index <= b.index ? a : b;
+        }
+    }
+
+    private static final class EvaluateTask extends RecursiveTask<Result> {
+
+        private static final long serialVersionUID = 1L;
+
+        // Tasks are forked, never serialized
+        private final transient RoundModel model;
+        private final int[] plans;
+        private final int stride;
+        private final int[] lengths;
+        private final int from;
+        private final int to;
+
+        private EvaluateTask(RoundModel model, int[] plans, int stride, int[] lengths, int from, int to) {
+            this.model = model;
+            this.plans = plans;
+            this.stride = stride;
+            this.lengths = lengths;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Result compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                RoundModel.Simulator simulator = model.newSimulator();
+                int[] plan = new int[stride];
+                long bestScore = Long.MIN_VALUE;
+                int bestIndex = from;
+                for (int i = from; i < to; i++) {
+                    System.arraycopy(plans, i * stride, plan, 0, lengths[i]);
+                    long score = simulator.evaluate(plan, lengths[i]);
+                    if (score > bestScore) {
+                        bestScore = score;
+                        bestIndex = i;
+                    }
+                }
+                return new Result(bestScore, bestIndex);
+            }
+            int mid = (from + to) >>> 1;
+            EvaluateTask left = new EvaluateTask(model, plans, stride, lengths, from, mid);
+            EvaluateTask right = new EvaluateTask(model, plans, stride, lengths, mid, to);
+            left.fork();
+            Result r = right.compute();
+            return Result.better(left.join(), r);
+        }
+    }
+}
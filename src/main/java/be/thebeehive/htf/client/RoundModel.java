@@ -0,0 +1,417 @@
+package be.thebeehive.htf.client;
+
+import be.thebeehive.htf.library.GameRoundFrame;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Action;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Effect;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Primitive, index-based view of a game round used by the search based planners.
+ * <p>
+ * Actions and effects are addressed by their index in the round message. A plan is an {@code int[]} of
+ * action indexes where plan[i] is executed at step i + 1. Simulation follows the same rules as
+ * {@code DecisionEngine.improveAndSanityCheck}: at every step the planned action is applied first, then
+ * every effect of that step which is not blocked. An effect is blocked when the first action in the plan
+ * coupled to it sits at a step at or before the effect's step.
+ * <p>
+ * The model is compiled once per round: effects are bucketed by step and both directions of the
+ * action/effect coupling are indexed, so simulating a plan with a {@link Simulator} costs
+ * O(steps + effects + plan length) without boxing or allocation.
+ */
+public class RoundModel {
+
+    /**
+     * Score of a plan after which the submarine is dead. Lower than any score of a surviving plan.
+     */
+    public static final long DEAD_SCORE = Long.MIN_VALUE / 4;
+
+    final FixedValues start = new FixedValues();
+
+    int actionCount;
+    long[] actionIds = new long[0];
+    int[] actionEffect = new int[0];
+    long[] actionHull = new long[0];
+    long[] actionMaxHull = new long[0];
+    long[] actionCrew = new long[0];
+    long[] actionMaxCrew = new long[0];
+
+    int effectCount;
+    long[] effectIds = new long[0];
+    int[] effectStep = new int[0];
+    long[] effectHull = new long[0];
+    long[] effectMaxHull = new long[0];
+    long[] effectCrew = new long[0];
+    long[] effectMaxCrew = new long[0];
+    int maxEffectStep;
+
+    // Effects of step s are stepEffects[stepStart[s] .. stepStart[s + 1]), in message order
+    int[] stepStart = new int[2];
+    int[] stepEffects = new int[0];
+
+    // Actions coupled to effect e are blockerActions[blockerStart[e] .. blockerStart[e + 1]), in message order
+    int[] blockerStart = new int[1];
+    int[] blockerActions = new int[0];
+
+    private final LongIntHashMap effectIndex = new LongIntHashMap();
+    private final LongIntHashMap actionIndex = new LongIntHashMap();
+    private int[] fill = new int[0];
+
+    /**
+     * Creates an empty model, see {@link #load(GameRoundServerMessage)}.
+     */
+    public RoundModel() {
+
+    }
+
+    /**
+     * Builds the model of a game round.
+     *
+     * @param msg the game round.
+     * @return the model.
+     */
+    public static RoundModel of(GameRoundServerMessage msg) {
+        return new RoundModel().load(msg);
+    }
+
+    /**
+     * Replaces the contents of this model with a new game round. All arrays are reused and only grow to the
+     * largest round seen so far, so loading a round of a known size does not allocate.
+     *
+     * @param msg the game round.
+     * @return this model.
+     */
+    public RoundModel load(GameRoundServerMessage msg) {
+        List<Effect> effects = msg.getEffects();
+        List<Action> actions = msg.getActions();
+        start.set(msg.getOurSubmarine().getValues());
+
+        effectCount = effects != null ? effects.size() : 0;
+        ensureEffectCapacity(effectCount);
+        effectIndex.clear();
+        int maxStep = 0;
+        for (int i = 0; i < effectCount; i++) {
+            Effect e = effects.get(i);
+            GameRoundServerMessage.Values v = e.getValues();
+            effectIds[i] = e.getId();
+            effectStep[i] = e.getStep();
+            effectHull[i] = FixedValues.toFixed(v.getHullStrength());
+            effectMaxHull[i] = FixedValues.toFixed(v.getMaxHullStrength());
+            effectCrew[i] = FixedValues.toFixed(v.getCrewHealth());
+            effectMaxCrew[i] = FixedValues.toFixed(v.getMaxCrewHealth());
+            effectIndex.putIfAbsent(e.getId(), i);
+            maxStep = Math.max(maxStep, e.getStep());
+        }
+        maxEffectStep = maxStep;
+
+        actionCount = actions != null ? actions.size() : 0;
+        ensureActionCapacity(actionCount);
+        actionIndex.clear();
+        for (int i = 0; i < actionCount; i++) {
+            Action a = actions.get(i);
+            GameRoundServerMessage.Values v = a.getValues();
+            actionIds[i] = a.getId();
+            actionEffect[i] = a.getEffectId() >= 0 ? effectIndex.get(a.getEffectId(), -1) : -1;
+            actionHull[i] = FixedValues.toFixed(v.getHullStrength());
+            actionMaxHull[i] = FixedValues.toFixed(v.getMaxHullStrength());
+            actionCrew[i] = FixedValues.toFixed(v.getCrewHealth());
+            actionMaxCrew[i] = FixedValues.toFixed(v.getMaxCrewHealth());
+            actionIndex.putIfAbsent(a.getId(), i);
+        }
+
+        compile();
+        return this;
+    }
+
+    /**
+     * Replaces the contents of this model with a decoded game round, see {@link #load(GameRoundServerMessage)}.
+     * The frame's fixed-point values share the scale of {@link FixedValues}, so they are copied as they are.
+     *
+     * @param frame the game round.
+     * @return this model.
+     */
+    public RoundModel load(GameRoundFrame frame) {
+        start.set(frame.getHullStrength(), frame.getMaxHullStrength(), frame.getCrewHealth(), frame.getMaxCrewHealth());
+
+        effectCount = frame.getEffectCount();
+        ensureEffectCapacity(effectCount);
+        effectIndex.clear();
+        System.arraycopy(frame.getEffectIds(), 0, effectIds, 0, effectCount);
+        System.arraycopy(frame.getEffectSteps(), 0, effectStep, 0, effectCount);
+        System.arraycopy(frame.getEffectHull(), 0, effectHull, 0, effectCount);
+        System.arraycopy(frame.getEffectMaxHull(), 0, effectMaxHull, 0, effectCount);
+        System.arraycopy(frame.getEffectCrew(), 0, effectCrew, 0, effectCount);
+        System.arraycopy(frame.getEffectMaxCrew(), 0, effectMaxCrew, 0, effectCount);
+        int maxStep = 0;
+        for (int i = 0; i < effectCount; i++) {
+            effectIndex.putIfAbsent(effectIds[i], i);
+            maxStep = Math.max(maxStep, effectStep[i]);
+        }
+        maxEffectStep = maxStep;
+
+        actionCount = frame.getActionCount();
+        ensureActionCapacity(actionCount);
+        actionIndex.clear();
+        long[] actionEffectIds = frame.getActionEffectIds();
+        System.arraycopy(frame.getActionIds(), 0, actionIds, 0, actionCount);
+        System.arraycopy(frame.getActionHull(), 0, actionHull, 0, actionCount);
+        System.arraycopy(frame.getActionMaxHull(), 0, actionMaxHull, 0, actionCount);
+        System.arraycopy(frame.getActionCrew(), 0, actionCrew, 0, actionCount);
+        System.arraycopy(frame.getActionMaxCrew(), 0, actionMaxCrew, 0, actionCount);
+        for (int i = 0; i < actionCount; i++) {
+            long effectId = actionEffectIds[i];
+            actionEffect[i] = effectId >= 0 ? effectIndex.get(effectId, -1) : -1;
+            actionIndex.putIfAbsent(actionIds[i], i);
+        }
+
+        compile();
+        return this;
+    }
+
+    private void compile() {
+        if (stepStart.length < maxEffectStep + 2) {
+            stepStart = new int[maxEffectStep + 2];
+        }
+        int steps = maxEffectStep + 2;
+        if (fill.length < Math.max(steps, effectCount + 1)) {
+            fill = new int[Math.max(steps, effectCount + 1)];
+        }
+
+        Arrays.fill(stepStart, 0, steps, 0);
+        for (int e = 0; e < effectCount; e++) {
+            if (effectStep[e] >= 1) stepStart[effectStep[e] + 1]++;
+        }
+        for (int s = 1; s < steps; s++) stepStart[s] += stepStart[s - 1];
+        System.arraycopy(stepStart, 0, fill, 0, steps);
+        for (int e = 0; e < effectCount; e++) {
+            if (effectStep[e] >= 1) stepEffects[fill[effectStep[e]]++] = e;
+        }
+
+        Arrays.fill(blockerStart, 0, effectCount + 1, 0);
+        for (int a = 0; a < actionCount; a++) {
+            if (actionEffect[a] >= 0) blockerStart[actionEffect[a] + 1]++;
+        }
+        for (int e = 0; e < effectCount; e++) blockerStart[e + 1] += blockerStart[e];
+        System.arraycopy(blockerStart, 0, fill, 0, effectCount + 1);
+        for (int a = 0; a < actionCount; a++) {
+            if (actionEffect[a] >= 0) blockerActions[fill[actionEffect[a]]++] = a;
+        }
+    }
+
+    private void ensureEffectCapacity(int n) {
+        if (effectIds.length >= n) {
+            return;
+        }
+        effectIds = new long[n];
+        effectStep = new int[n];
+        effectHull = new long[n];
+        effectMaxHull = new long[n];
+        effectCrew = new long[n];
+        effectMaxCrew = new long[n];
+        stepEffects = new int[n];
+        blockerStart = new int[n + 1];
+    }
+
+    private void ensureActionCapacity(int n) {
+        if (actionIds.length >= n) {
+            return;
+        }
+        actionIds = new long[n];
+        actionEffect = new int[n];
+        actionHull = new long[n];
+        actionMaxHull = new long[n];
+        actionCrew = new long[n];
+        actionMaxCrew = new long[n];
+        blockerActions = new int[n];
+    }
+
+    /**
+     * Scores the state of the submarine at the end of a round. Higher is better.
+     *
+     * @param v the final values.
+     * @return {@link #DEAD_SCORE} when dead, otherwise hull plus crew plus a quarter of both maximums.
+     */
+    public static long score(FixedValues v) {
+        if (v.isDead()) {
+            return DEAD_SCORE;
+        }
+        return v.getHullStrength() + v.getCrewHealth() + (v.getMaxHullStrength() + v.getMaxCrewHealth()) / 4;
+    }
+
+    /**
+     * Simulates a plan and scores the outcome. A plan during which the submarine dies at any step
+     * scores {@link #DEAD_SCORE}.
+     * <p>
+     * Allocates a new {@link Simulator}; use {@link #newSimulator()} when evaluating many plans.
+     *
+     * @param plan   the action indexes.
+     * @param length the number of actions in the plan.
+     * @return the score of the plan.
+     */
+    public long evaluate(int[] plan, int length) {
+        return newSimulator().evaluate(plan, length);
+    }
+
+    /**
+     * Simulates a plan.
+     * <p>
+     * Allocates a new {@link Simulator}; use {@link #newSimulator()} when simulating many plans.
+     *
+     * @param plan   the action indexes.
+     * @param length the number of actions in the plan.
+     * @param out    receives the final values.
+     * @return true if the submarine is alive after every step.
+     */
+    public boolean simulate(int[] plan, int length, FixedValues out) {
+        return newSimulator().simulate(plan, length, out);
+    }
+
+    /**
+     * Creates a simulator with its own scratch state. A simulator is not thread-safe, but any number of
+     * simulators can run on the same model concurrently.
+     *
+     * @return a new simulator for this round.
+     */
+    public Simulator newSimulator() {
+        return new Simulator();
+    }
+
+    /**
+     * Reusable plan simulator of a {@link RoundModel}.
+     */
+    public final class Simulator {
+
+        private final FixedValues values = new FixedValues();
+        // blockedStamp[e] == generation when effect e is blocked in the current simulation
+        private int[] blockedStamp = new int[effectCount];
+        private int generation;
+
+        private Simulator() {
+
+        }
+
+        /**
+         * Simulates a plan and scores the outcome, see {@link RoundModel#evaluate(int[], int)}.
+         *
+         * @param plan   the action indexes.
+         * @param length the number of actions in the plan.
+         * @return the score of the plan.
+         */
+        public long evaluate(int[] plan, int length) {
+            return simulate(plan, length, values) ? score(values) : DEAD_SCORE;
+        }
+
+        /**
+         * Simulates a plan, see {@link RoundModel#simulate(int[], int, FixedValues)}.
+         *
+         * @param plan   the action indexes.
+         * @param length the number of actions in the plan.
+         * @param out    receives the final values.
+         * @return true if the submarine is alive after every step.
+         */
+        public boolean simulate(int[] plan, int length, FixedValues out) {
+            if (blockedStamp.length < effectCount) {
+                // The model was reloaded with a bigger round
+                blockedStamp = new int[effectCount];
+                generation = 0;
+            }
+            if (++generation == 0) {
+                Arrays.fill(blockedStamp, 0);
+                generation = 1;
+            }
+            int gen = generation;
+
+            out.set(start);
+            boolean alive = !out.isDead();
+            int maxStep = Math.max(length, maxEffectStep);
+            for (int s = 1; s <= maxStep; s++) {
+                if (s <= length) {
+                    int a = plan[s - 1];
+                    addAction(out, a);
+                    alive &= !out.isDead();
+                    // Only a blocker at or before the effect's step counts; a later one can never be first
+                    int effect = actionEffect[a];
+                    if (effect >= 0 && effectStep[effect] >= s) {
+                        blockedStamp[effect] = gen;
+                    }
+                }
+                if (s <= maxEffectStep) {
+                    for (int k = stepStart[s], end = stepStart[s + 1]; k < end; k++) {
+                        int e = stepEffects[k];
+                        if (blockedStamp[e] != gen) {
+                            addEffect(out, e);
+                            alive &= !out.isDead();
+                        }
+                    }
+                }
+            }
+            return alive;
+        }
+    }
+
+    void addAction(FixedValues v, int action) {
+        v.add(actionHull[action], actionMaxHull[action], actionCrew[action], actionMaxCrew[action]);
+    }
+
+    void addEffect(FixedValues v, int effect) {
+        v.add(effectHull[effect], effectMaxHull[effect], effectCrew[effect], effectMaxCrew[effect]);
+    }
+
+    /**
+     * Converts action ids to a plan of action indexes. Unknown ids are skipped.
+     *
+     * @param ids  the action ids.
+     * @param plan receives the action indexes, must be at least ids.size() long.
+     * @return the number of indexes written.
+     */
+    public int toPlan(List<Long> ids, int[] plan) {
+        int length = 0;
+        for (int i = 0; i < ids.size(); i++) {
+            int a = actionIndex.get(ids.get(i), -1);
+            if (a >= 0) {
+                plan[length++] = a;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Returns the index of an action.
+     *
+     * @param actionId the action id.
+     * @return the action index, or -1 if the round has no such action.
+     */
+    public int indexOfAction(long actionId) {
+        return actionIndex.get(actionId, -1);
+    }
+
+    /**
+     * Converts a plan of action indexes to action ids.
+     *
+     * @param plan   the action indexes.
+     * @param length the number of actions in the plan.
+     * @return the action ids.
+     */
+    public List<Long> toActionIds(int[] plan, int length) {
+        List<Long> ids = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            ids.add(actionIds[plan[i]]);
+        }
+        return ids;
+    }
+
+    public FixedValues getStart() {
+        return start;
+    }
+
+    public int getActionCount() {
+        return actionCount;
+    }
+
+    public int getEffectCount() {
+        return effectCount;
+    }
+}
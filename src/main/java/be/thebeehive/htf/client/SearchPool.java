@@ -0,0 +1,96 @@
+package be.thebeehive.htf.client;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The worker threads of a parallel search planner, such as {@link MctsPlanner} and {@link IslandPlanner}.
+ * <p>
+ * {@link #runAll(Runnable[])} runs one search per thread and waits for all of them. The searches poll
+ * {@link #isStopped()} and their own deadline. If the calling thread is interrupted the pool asks them to stop,
+ * still waits until they have, so their results are complete, and keeps the interrupt flag. The threads are
+ * daemons, so a planner that is never closed does not keep the JVM alive.
+ */
+final class SearchPool implements AutoCloseable {
+
+    private final int threads;
+    private final ExecutorService workers;
+    private volatile boolean stopped;
+
+    /**
+     * @param name    the thread name prefix, the threads are called name-1 to name-threads.
+     * @param threads the number of worker threads.
+     */
+    SearchPool(String name, int threads) {
+        this.threads = Math.max(1, threads);
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(this.threads, r -> {
+            Thread thread = new Thread(r, name + "-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return the number of worker threads.
+     */
+    int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @return true once the searches of the current call should return.
+     */
+    boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Runs every search on its own worker thread and waits until all of them returned.
+     *
+     * @param searches at most {@link #getThreads()} searches.
+     */
+    void runAll(Runnable[] searches) {
+        stopped = false;
+        CountDownLatch done = new CountDownLatch(searches.length);
+        for (Runnable search : searches) {
+            workers.execute(() -> {
+                try {
+                    search.run();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            stopped = true;
+            // The searches stop at their next check
+            awaitUninterruptibly(done);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops the worker threads.
+     */
+    @Override
+    public void close() {
+        stopped = true;
+        workers.shutdownNow();
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        while (true) {
+            try {
+                latch.await();
+                return;
+            } catch (InterruptedException ignored) {
+                // Keep waiting, the interrupt is restored afterwards
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package be.thebeehive.htf.client;
+
+import be.thebeehive.htf.library.EnvironmentType;
+import be.thebeehive.htf.library.HtfCodecs;
+import be.thebeehive.htf.library.ReconnectSupervisor;
+import be.thebeehive.htf.library.WireFormat;
+
+import java.util.concurrent.TimeUnit;
+
+public class SessionMain {
+
+    /**
+     * Plays one game per API key at the same time, e.g. for strategy tournaments and soak tests, and prints
+     * a line per session once all games finished.
+     * <p>
+     * Usage: {@code SessionMain <uri> <SIMULATION|LIVE> <threads|virtual> <apiKey> [apiKey ...]}
+     * <p>
+     * With a number, rounds are decided on that many shared threads; with {@code virtual}, every session runs
+     * on its own virtual thread, which needs a build with {@code -Pjava21}.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 4) {
+            System.err.println("Usage: SessionMain <uri> <SIMULATION|LIVE> <threads|virtual> <apiKey> [apiKey ...]");
+            System.exit(1);
+        }
+        String uri = args[0];
+        EnvironmentType environmentType = EnvironmentType.valueOf(args[1]);
+        SessionManager manager = "virtual".equals(args[2])
+                ? new SessionManager(uri, new HtfCodecs(), new DecisionEngine(), SessionThreads.virtual())
+                : new SessionManager(uri, WireFormat.JSON, Integer.parseInt(args[2]));
+        ReconnectSupervisor supervisor = new ReconnectSupervisor();
+        manager.setReconnectSupervisor(supervisor);
+        Runtime.getRuntime().addShutdownHook(new Thread(manager::close));
+        for (int i = 3; i < args.length; i++) {
+            manager.open(args[i], environmentType);
+        }
+
+        manager.awaitSessions(1, TimeUnit.DAYS);
+        for (SessionManager.Session session : manager.getSessions()) {
+            System.out.println(session);
+        }
+        manager.close();
+        supervisor.close();
+    }
+}
@@ -0,0 +1,498 @@
+package be.thebeehive.htf.client;
+
+import be.thebeehive.htf.library.EnvironmentType;
+import be.thebeehive.htf.library.GameRoundFrame;
+import be.thebeehive.htf.library.HtfClient;
+import be.thebeehive.htf.library.HtfCodecs;
+import be.thebeehive.htf.library.HtfFrameListener;
+import be.thebeehive.htf.library.ReconnectSupervisor;
+import be.thebeehive.htf.library.WireFormat;
+import be.thebeehive.htf.library.protocol.client.SelectActionsClientMessage;
+import be.thebeehive.htf.library.protocol.server.ErrorServerMessage;
+import be.thebeehive.htf.library.protocol.server.GameEndedServerMessage;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+import be.thebeehive.htf.library.protocol.server.WarningServerMessage;
+import org.java_websocket.WebSocket;
+import org.java_websocket.framing.CloseFrame;
+import org.java_websocket.framing.Framedata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URISyntaxException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs many game sessions, each with its own API key and environment, in one JVM.
+ * <p>
+ * Sessions share one {@link HtfCodecs}, one {@link DecisionEngine} and one keep-alive thread that pings every
+ * connection, instead of a connection-lost timer thread per client. Every session has its own connection,
+ * {@link DecisionArena} and max actions cap. Rounds are decided in one of two ways:
+ * <ul>
+ *     <li>on a fixed pool of decide threads: a round is copied off the WebSocket read thread, and when a
+ *     newer round of the same session arrives before the previous one was decided, the older one is dropped,
+ *     so a busy pool never answers outdated rounds;</li>
+ *     <li>on the session's own {@link SessionThreads} thread, which also runs the WebSocket read loop. With
+ *     {@link SessionThreads#virtual()} a waiting session costs almost no memory. A session that a
+ *     {@link ReconnectSupervisor} reconnects gets a new thread from the same {@link SessionThreads}.</li>
+ * </ul>
+ * Java-WebSocket always starts a platform thread per connection to write outgoing frames.
+ */
+public final class SessionManager implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SessionManager.class);
+
+    public static final int DEFAULT_MAX_ACTIONS = 5;
+    public static final int DEFAULT_KEEP_ALIVE_SECONDS = 60;
+
+    private final String uri;
+    private final HtfCodecs codecs;
+    private final DecisionEngine engine;
+    // Exactly one of both is set
+    private final ExecutorService executor;
+    private final SessionThreads sessionThreads;
+    private final ScheduledExecutorService keepAlive;
+    private final long keepAliveNanos;
+    private final List<Session> sessions = new CopyOnWriteArrayList<>();
+    private volatile ReconnectSupervisor reconnectSupervisor;
+
+    /**
+     * @param uri        the server to connect every session to.
+     * @param wireFormat the format every session requests from the server.
+     * @param threads    the number of decide threads shared by all sessions.
+     */
+    public SessionManager(String uri, WireFormat wireFormat, int threads) {
+        this(uri, new HtfCodecs(wireFormat), new DecisionEngine(), threads);
+    }
+
+    /**
+     * @param uri     the server to connect every session to.
+     * @param codecs  the mappers and decoders shared by all sessions.
+     * @param engine  the engine shared by all sessions.
+     * @param threads the number of decide threads shared by all sessions.
+     */
+    public SessionManager(String uri, HtfCodecs codecs, DecisionEngine engine, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        this.uri = uri;
+        this.codecs = codecs;
+        this.engine = engine;
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "htf-session-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.sessionThreads = null;
+        this.keepAliveNanos = TimeUnit.SECONDS.toNanos(DEFAULT_KEEP_ALIVE_SECONDS);
+        this.keepAlive = startKeepAlive();
+    }
+
+    /**
+     * Runs every session on its own thread, which reads, decodes, decides and answers its rounds.
+     *
+     * @param uri            the server to connect every session to.
+     * @param codecs         the mappers and decoders shared by all sessions.
+     * @param engine         the engine shared by all sessions.
+     * @param sessionThreads starts the thread of every session, e.g. {@link SessionThreads#virtual()}.
+     */
+    public SessionManager(String uri, HtfCodecs codecs, DecisionEngine engine, SessionThreads sessionThreads) {
+        this.uri = uri;
+        this.codecs = codecs;
+        this.engine = engine;
+        this.executor = null;
+        this.sessionThreads = sessionThreads;
+        this.keepAliveNanos = TimeUnit.SECONDS.toNanos(DEFAULT_KEEP_ALIVE_SECONDS);
+        this.keepAlive = startKeepAlive();
+    }
+
+    private ScheduledExecutorService startKeepAlive() {
+        ScheduledExecutorService service = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "htf-keep-alive");
+            thread.setDaemon(true);
+            return thread;
+        });
+        service.scheduleAtFixedRate(this::keepAlive, keepAliveNanos, keepAliveNanos, TimeUnit.NANOSECONDS);
+        return service;
+    }
+
+    /**
+     * Does what every client's connection-lost timer would do: closes connections that did not answer the
+     * previous ping in time and pings the others.
+     */
+    private void keepAlive() {
+        long minimumPongTime = System.nanoTime() - keepAliveNanos * 3 / 2;
+        for (Session session : sessions) {
+            HtfClient client = session.client;
+            if (!client.isOpen()) {
+                continue;
+            }
+            try {
+                if (session.lastPong - minimumPongTime < 0) {
+                    client.closeConnection(CloseFrame.ABNORMAL_CLOSE, "The connection was closed because the other endpoint did not respond with a pong in time.");
+                } else {
+                    client.sendPing();
+                }
+            } catch (RuntimeException ex) {
+                // The connection closed in between; its own close handling takes over
+            }
+        }
+    }
+
+    /**
+     * Creates a session and starts connecting it.
+     *
+     * @param apiKey          the API key of the session.
+     * @param environmentType the environment to play in.
+     * @return the new session.
+     * @throws URISyntaxException if the server uri is invalid.
+     */
+    public Session open(String apiKey, EnvironmentType environmentType) throws URISyntaxException {
+        Session session = new Session(apiKey, environmentType);
+        sessions.add(session);
+        ReconnectSupervisor supervisor = reconnectSupervisor;
+        if (supervisor != null) {
+            supervisor.supervise(session.client);
+        }
+        session.client.connect();
+        return session;
+    }
+
+    /**
+     * Lets a supervisor reconnect the sessions opened from now on when they lose their connection.
+     * A reconnected session keeps its arena and cap. When sessions run on {@link SessionThreads}, every
+     * connection gets a new thread from them, e.g. a new virtual thread.
+     *
+     * @param reconnectSupervisor the supervisor, or null to not reconnect.
+     */
+    public void setReconnectSupervisor(ReconnectSupervisor reconnectSupervisor) {
+        this.reconnectSupervisor = reconnectSupervisor;
+    }
+
+    /**
+     * @return all sessions opened so far, in opening order.
+     */
+    public List<Session> getSessions() {
+        return Collections.unmodifiableList(sessions);
+    }
+
+    /**
+     * Waits until every session opened so far has ended its game or lost its connection for good, i.e. without
+     * a {@link be.thebeehive.htf.library.ReconnectSupervisor} reconnecting it.
+     *
+     * @param timeout the maximum time to wait.
+     * @param unit    the unit of timeout.
+     * @return true if all sessions finished in time.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public boolean awaitSessions(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Session session : sessions) {
+            if (!session.finished.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Closes every session and stops the decide threads.
+     */
+    @Override
+    public void close() {
+        for (Session session : sessions) {
+            session.client.close();
+        }
+        keepAlive.shutdown();
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * One game on its own connection. All state that differs between games lives here, so sessions never
+     * see each other's rounds, arena or cap.
+     */
+    public final class Session implements HtfFrameListener, Runnable {
+
+        private final String apiKey;
+        private final EnvironmentType environmentType;
+        private final HtfClient client;
+        private final DecisionArena arena = new DecisionArena();
+        private final CountDownLatch finished = new CountDownLatch(1);
+
+        // Guarded by this: the newest undecided round, and the round being decided
+        private GameRoundFrame pending = new GameRoundFrame();
+        private GameRoundFrame deciding = new GameRoundFrame();
+        private boolean hasPending;
+        private boolean scheduled;
+
+        private volatile long lastPong;
+        private volatile int maxActionsCap = DEFAULT_MAX_ACTIONS;
+        private volatile long endRound = -1;
+        private volatile String error;
+        private final AtomicLong rounds = new AtomicLong();
+        private final AtomicLong answeredRounds = new AtomicLong();
+        private final AtomicLong droppedRounds = new AtomicLong();
+        private final AtomicLong warnings = new AtomicLong();
+
+        private Session(String apiKey, EnvironmentType environmentType) throws URISyntaxException {
+            this.apiKey = apiKey;
+            this.environmentType = environmentType;
+            this.client = new HtfClient(uri, apiKey, environmentType, this, codecs) {
+                // The thread of the latest connection when sessions run on SessionThreads, guarded by itself
+                private final Object threadLock = new Object();
+                private Thread sessionThread;
+                private volatile boolean reconnectCall;
+
+                @Override
+                public void reconnect() {
+                    Thread previous;
+                    synchronized (threadLock) {
+                        previous = sessionThread;
+                    }
+                    if (previous == Thread.currentThread()) {
+                        throw new IllegalStateException("A session cannot reconnect from its own session thread");
+                    }
+                    reconnectCall = true;
+                    try {
+                        super.reconnect();
+                    } finally {
+                        reconnectCall = false;
+                    }
+                }
+
+                /**
+                 * Runs the connection on a session thread. {@link #reconnect()} connects through this method
+                 * too, while Java-WebSocket itself would start a platform thread. Like
+                 * {@link org.java_websocket.client.WebSocketClient#connect()}, a client connects once; a
+                 * reconnect first waits until the previous thread is done with the connection, as
+                 * Java-WebSocket does for its own thread.
+                 */
+                @Override
+                public void connect() {
+                    if (sessionThreads == null) {
+                        super.connect();
+                        return;
+                    }
+                    synchronized (threadLock) {
+                        Thread previous = sessionThread;
+                        if (previous != null && reconnectCall) {
+                            awaitPrevious(previous);
+                        }
+                        if (previous != null && previous.isAlive()) {
+                            throw new IllegalStateException("WebSocketClient objects are not reuseable");
+                        }
+                        sessionThread = sessionThreads.start("htf-session-" + apiKey, this);
+                    }
+                }
+
+                private void awaitPrevious(Thread previous) {
+                    previous.interrupt();
+                    try {
+                        previous.join();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("Interrupted while waiting for " + previous.getName(), ex);
+                    }
+                }
+
+                @Override
+                public void onClose(int code, String reason, boolean remote) {
+                    super.onClose(code, reason, remote);
+                    if (!isReconnecting()) {
+                        finished.countDown();
+                    }
+                }
+
+                // Pinged by the keep-alive thread of the manager instead
+                @Override
+                protected void startConnectionLostTimer() {
+                    lastPong = System.nanoTime();
+                }
+
+                @Override
+                protected void stopConnectionLostTimer() {
+
+                }
+
+                @Override
+                public void onWebsocketPong(WebSocket conn, Framedata f) {
+                    lastPong = System.nanoTime();
+                }
+            };
+        }
+
+        /**
+         * Decides the round right away on a session thread, or copies it and hands it to the decide threads.
+         * Called on the WebSocket read thread.
+         */
+        @Override
+        public void onGameRoundFrame(HtfClient client, GameRoundFrame frame) {
+            rounds.incrementAndGet();
+            if (executor == null) {
+                decide(frame);
+                return;
+            }
+            synchronized (this) {
+                if (hasPending) {
+                    droppedRounds.incrementAndGet();
+                }
+                pending.set(frame);
+                hasPending = true;
+                if (scheduled) {
+                    return;
+                }
+                scheduled = true;
+            }
+            executor.execute(this);
+        }
+
+        /**
+         * Decides the newest round on a decide thread. Only one round per run, so a session with a steady
+         * stream of rounds cannot starve the others.
+         */
+        @Override
+        public void run() {
+            GameRoundFrame frame;
+            synchronized (this) {
+                frame = pending;
+                pending = deciding;
+                deciding = frame;
+                hasPending = false;
+            }
+            try {
+                decide(frame);
+            } catch (Exception ex) {
+                client.onError(ex);
+            }
+            synchronized (this) {
+                if (!hasPending) {
+                    scheduled = false;
+                    return;
+                }
+            }
+            executor.execute(this);
+        }
+
+        private void decide(GameRoundFrame frame) {
+            int length = engine.decideActions(frame, Math.min(maxActionsCap, frame.getActionCount()), arena);
+            client.sendActions(frame.getRoundIdMostSigBits(), frame.getRoundIdLeastSigBits(), arena.getActionIds(), length);
+            answeredRounds.incrementAndGet();
+        }
+
+        /**
+         * Only called when a round could not be decoded as a frame; decided right away on the read thread.
+         */
+        @Override
+        public void onGameRoundServerMessage(HtfClient client, GameRoundServerMessage msg) {
+            rounds.incrementAndGet();
+            int cap = Math.min(maxActionsCap, msg.getActions() != null ? msg.getActions().size() : 0);
+            client.send(new SelectActionsClientMessage(msg.getRoundId(), engine.decideActions(msg, cap)));
+            answeredRounds.incrementAndGet();
+        }
+
+        @Override
+        public void onErrorServerMessage(HtfClient client, ErrorServerMessage msg) {
+            error = msg.getMsg();
+            LOGGER.error("{}: ERROR: {}", apiKey, msg.getMsg());
+        }
+
+        @Override
+        public void onGameEndedServerMessage(HtfClient client, GameEndedServerMessage msg) {
+            endRound = msg.getRound();
+            finished.countDown();
+        }
+
+        @Override
+        public void onWarningServerMessage(HtfClient client, WarningServerMessage msg) {
+            warnings.incrementAndGet();
+            String m = msg.getMsg() == null ? "" : msg.getMsg().toLowerCase();
+            if (m.contains("too many") || m.contains("maximum") || m.contains("exceeded")) {
+                maxActionsCap = Math.max(1, maxActionsCap - 1);
+            }
+        }
+
+        public String getApiKey() {
+            return apiKey;
+        }
+
+        public EnvironmentType getEnvironmentType() {
+            return environmentType;
+        }
+
+        public HtfClient getClient() {
+            return client;
+        }
+
+        public int getMaxActionsCap() {
+            return maxActionsCap;
+        }
+
+        /**
+         * @return the number of rounds received.
+         */
+        public long getRounds() {
+            return rounds.get();
+        }
+
+        /**
+         * @return the number of rounds answered.
+         */
+        public long getAnsweredRounds() {
+            return answeredRounds.get();
+        }
+
+        /**
+         * @return the number of rounds replaced by a newer round before they were decided.
+         */
+        public long getDroppedRounds() {
+            return droppedRounds.get();
+        }
+
+        public long getWarnings() {
+            return warnings.get();
+        }
+
+        /**
+         * @return the round the game ended at, or -1 while it is running.
+         */
+        public long getEndRound() {
+            return endRound;
+        }
+
+        /**
+         * @return the message of the last error from the server, or null.
+         */
+        public String getError() {
+            return error;
+        }
+
+        /**
+         * @return true once the game ended or the connection closed.
+         */
+        public boolean isFinished() {
+            return finished.getCount() == 0;
+        }
+
+        @Override
+        public String toString() {
+            return apiKey + " (" + environmentType + "): rounds " + rounds.get()
+                    + ", answered " + answeredRounds.get()
+                    + ", dropped " + droppedRounds.get()
+                    + ", warnings " + warnings.get()
+                    + ", cap " + maxActionsCap
+                    + (endRound >= 0 ? ", ended at round " + endRound : isFinished() ? ", disconnected" : ", running")
+                    + (error != null ? ", error " + error : "");
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package be.thebeehive.htf.client;
+
+/**
+ * Starts the thread that runs one session of a {@link SessionManager}: its WebSocket read loop, in which
+ * rounds are decoded, decided and answered.
+ * <p>
+ * {@link #virtual()} needs a build with the {@code java21} profile and a Java 21 runtime; every other build
+ * only offers {@link #platform()}.
+ */
+public interface SessionThreads {
+
+    /**
+     * Starts a thread.
+     *
+     * @param name the name of the thread.
+     * @param task the loop to run.
+     * @return the started thread.
+     */
+    Thread start(String name, Runnable task);
+
+    /**
+     * @return threads that are ordinary daemon platform threads.
+     */
+    static SessionThreads platform() {
+        return (name, task) -> {
+            Thread thread = new Thread(task, name);
+            thread.setDaemon(true);
+            thread.start();
+            return thread;
+        };
+    }
+
+    /**
+     * @return virtual threads, which cost a few hundred bytes while a session waits for its next round.
+     * @throws UnsupportedOperationException if this build or runtime has no virtual threads.
+     */
+    static SessionThreads virtual() {
+        try {
+            return (SessionThreads) Class.forName("be.thebeehive.htf.client.VirtualSessionThreads")
+                    .getDeclaredConstructor()
+                    .newInstance();
+        } catch (ReflectiveOperationException | LinkageError ex) {
+            throw new UnsupportedOperationException("Virtual threads need a build with -Pjava21 and a Java 21 runtime", ex);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package be.thebeehive.htf.library;
+
+import org.java_websocket.client.DnsResolver;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+
+/**
+ * Resolves the server host once and keeps the address, so a reconnect does not wait for DNS.
+ * {@link #invalidate()} makes the next connect resolve again, e.g. after an attempt that failed.
+ */
+final class CachingDnsResolver implements DnsResolver {
+
+    private volatile InetAddress address;
+
+    @Override
+    public InetAddress resolve(URI uri) throws UnknownHostException {
+        InetAddress a = address;
+        if (a == null) {
+            a = InetAddress.getByName(uri.getHost());
+            address = a;
+        }
+        return a;
+    }
+
+    void invalidate() {
+        address = null;
+    }
+}
@@ -0,0 +1,402 @@
+package be.thebeehive.htf.library;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+
+/**
+ * Streaming decoder of GameRoundServerMessage frames into a reusable {@link GameRoundFrame}.
+ * <p>
+ * Reads the JSON tokens directly instead of binding {@code ServerMessage} POJOs, so a round is decoded without
+ * building lists, {@link BigDecimal}s or {@link java.util.UUID}s. Numbers are converted to fixed-point from the
+ * parser's character buffer, rounding half-up beyond 6 decimal places. Unknown fields are skipped.
+ * <p>
+ * With the factory of a binary {@link WireFormat} the decoder reads Smile or CBOR frames; numbers then come
+ * from the parser's binary values, and a round id may be a 16 byte binary value.
+ * <p>
+ * A decoder keeps no state of its own, so one instance can be shared by many connections as long as every
+ * thread decodes into its own frame.
+ */
+public final class GameRoundDecoder {
+
+    private static final String GAME_ROUND_TYPE = "GameRoundServerMessage";
+    private static final int MAX_FAST_DIGITS = 18;
+
+    private final JsonFactory jsonFactory;
+    private final boolean binary;
+
+    public GameRoundDecoder() {
+        this(new JsonFactory());
+    }
+
+    /**
+     * @param jsonFactory the factory to create parsers with, e.g. {@code objectMapper.getFactory()}.
+     */
+    public GameRoundDecoder(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+        this.binary = jsonFactory.canHandleBinaryNatively();
+    }
+
+    /**
+     * Decodes a server message if it is a game round.
+     *
+     * @param json  the server message.
+     * @param frame receives the round.
+     * @return true if the message was a game round; false for any other message type, which leaves frame
+     *         in an unspecified state.
+     * @throws IOException if the message is not valid JSON.
+     */
+    public boolean decode(String json, GameRoundFrame frame) throws IOException {
+        try (JsonParser p = jsonFactory.createParser(json)) {
+            return decode(p, frame);
+        }
+    }
+
+    /**
+     * Decodes a server message if it is a game round, see {@link #decode(String, GameRoundFrame)}.
+     *
+     * @param data   the buffer holding the UTF-8 encoded message.
+     * @param offset the offset of the message in data.
+     * @param length the length of the message.
+     * @param frame  receives the round.
+     * @return true if the message was a game round.
+     * @throws IOException if the message is not valid JSON.
+     */
+    public boolean decode(byte[] data, int offset, int length, GameRoundFrame frame) throws IOException {
+        try (JsonParser p = jsonFactory.createParser(data, offset, length)) {
+            return decode(p, frame);
+        }
+    }
+
+    /**
+     * Decodes the remaining bytes of a buffer, see {@link #decode(String, GameRoundFrame)}.
+     * The buffer's position is not changed.
+     *
+     * @param bytes the message.
+     * @param frame receives the round.
+     * @return true if the message was a game round.
+     * @throws IOException if the message is not valid.
+     */
+    public boolean decode(ByteBuffer bytes, GameRoundFrame frame) throws IOException {
+        if (bytes.hasArray()) {
+            return decode(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining(), frame);
+        }
+        byte[] data = new byte[bytes.remaining()];
+        bytes.duplicate().get(data);
+        return decode(data, 0, data.length, frame);
+    }
+
+    private boolean decode(JsonParser p, GameRoundFrame frame) throws IOException {
+        frame.clear();
+        expect(p, p.nextToken(), JsonToken.START_OBJECT);
+        boolean gameRound = false;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            JsonToken token = p.nextToken();
+            switch (field) {
+                case "_type":
+                    if (!GAME_ROUND_TYPE.equals(p.getText())) {
+                        return false;
+                    }
+                    gameRound = true;
+                    break;
+                case "round":
+                    frame.round = token == JsonToken.VALUE_NULL ? 0 : p.getLongValue();
+                    break;
+                case "roundId":
+                    readRoundId(p, token, frame);
+                    break;
+                case "effects":
+                    readEffects(p, token, frame);
+                    break;
+                case "actions":
+                    readActions(p, token, frame);
+                    break;
+                case "ourSubmarine":
+                    readSubmarine(p, token, frame);
+                    break;
+                default:
+                    p.skipChildren();
+                    break;
+            }
+        }
+        return gameRound;
+    }
+
+    private void readEffects(JsonParser p, JsonToken token, GameRoundFrame frame) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return;
+        }
+        expect(p, token, JsonToken.START_ARRAY);
+        while (p.nextToken() == JsonToken.START_OBJECT) {
+            int e = frame.addEffect();
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.getCurrentName();
+                JsonToken value = p.nextToken();
+                switch (field) {
+                    case "id":
+                        frame.effectIds[e] = value == JsonToken.VALUE_NULL ? 0 : p.getLongValue();
+                        break;
+                    case "step":
+                        frame.effectSteps[e] = value == JsonToken.VALUE_NULL ? 0 : p.getIntValue();
+                        break;
+                    case "values":
+                        if (readValues(p, value, frame.values)) {
+                            frame.effectHull[e] = frame.values[0];
+                            frame.effectMaxHull[e] = frame.values[1];
+                            frame.effectCrew[e] = frame.values[2];
+                            frame.effectMaxCrew[e] = frame.values[3];
+                        }
+                        break;
+                    default:
+                        p.skipChildren();
+                        break;
+                }
+            }
+        }
+    }
+
+    private void readActions(JsonParser p, JsonToken token, GameRoundFrame frame) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return;
+        }
+        expect(p, token, JsonToken.START_ARRAY);
+        while (p.nextToken() == JsonToken.START_OBJECT) {
+            int a = frame.addAction();
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.getCurrentName();
+                JsonToken value = p.nextToken();
+                switch (field) {
+                    case "id":
+                        frame.actionIds[a] = value == JsonToken.VALUE_NULL ? 0 : p.getLongValue();
+                        break;
+                    case "effectId":
+                        frame.actionEffectIds[a] = value == JsonToken.VALUE_NULL ? 0 : p.getLongValue();
+                        break;
+                    case "values":
+                        if (readValues(p, value, frame.values)) {
+                            frame.actionHull[a] = frame.values[0];
+                            frame.actionMaxHull[a] = frame.values[1];
+                            frame.actionCrew[a] = frame.values[2];
+                            frame.actionMaxCrew[a] = frame.values[3];
+                        }
+                        break;
+                    default:
+                        p.skipChildren();
+                        break;
+                }
+            }
+        }
+    }
+
+    private void readSubmarine(JsonParser p, JsonToken token, GameRoundFrame frame) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return;
+        }
+        expect(p, token, JsonToken.START_OBJECT);
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            JsonToken value = p.nextToken();
+            switch (field) {
+                case "alive":
+                    frame.alive = value == JsonToken.VALUE_TRUE;
+                    break;
+                case "values":
+                    if (readValues(p, value, frame.values)) {
+                        frame.hullStrength = frame.values[0];
+                        frame.maxHullStrength = frame.values[1];
+                        frame.crewHealth = frame.values[2];
+                        frame.maxCrewHealth = frame.values[3];
+                    }
+                    break;
+                default:
+                    p.skipChildren();
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Reads a Values object into values: hull, max hull, crew, max crew. Missing fields are zero.
+     *
+     * @return false if the values were null.
+     */
+    private boolean readValues(JsonParser p, JsonToken token, long[] values) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return false;
+        }
+        expect(p, token, JsonToken.START_OBJECT);
+        values[0] = 0;
+        values[1] = 0;
+        values[2] = 0;
+        values[3] = 0;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            JsonToken value = p.nextToken();
+            switch (field) {
+                case "hullStrength":
+                    values[0] = readFixed(p, value);
+                    break;
+                case "maxHullStrength":
+                    values[1] = readFixed(p, value);
+                    break;
+                case "crewHealth":
+                    values[2] = readFixed(p, value);
+                    break;
+                case "maxCrewHealth":
+                    values[3] = readFixed(p, value);
+                    break;
+                default:
+                    p.skipChildren();
+                    break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Converts the current number token to fixed-point, straight from the parser's characters when the
+     * number is a plain decimal whose fixed-point value has at most 18 digits.
+     */
+    private long readFixed(JsonParser p, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return 0L;
+        }
+        if (binary && token != JsonToken.VALUE_STRING) {
+            return readBinaryFixed(p, token);
+        }
+        if (token != JsonToken.VALUE_NUMBER_INT && token != JsonToken.VALUE_NUMBER_FLOAT && token != JsonToken.VALUE_STRING) {
+            throw new JsonParseException(p, "Expected a number but got " + token);
+        }
+        char[] chars = p.getTextCharacters();
+        int i = p.getTextOffset();
+        int end = i + p.getTextLength();
+        boolean negative = false;
+        if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+            negative = chars[i] == '-';
+            i++;
+        }
+        long result = 0;
+        int digits = 0;
+        int decimals = -1;
+        boolean roundUp = false;
+        boolean valid = i < end;
+        for (; i < end && valid; i++) {
+            char c = chars[i];
+            if (c == '.' && decimals < 0) {
+                decimals = 0;
+            } else if (c >= '0' && c <= '9') {
+                if (decimals < 6) {
+                    result = result * 10 + (c - '0');
+                    if (result != 0 && ++digits > MAX_FAST_DIGITS) {
+                        valid = false;
+                    }
+                    if (decimals >= 0) {
+                        decimals++;
+                    }
+                } else if (decimals == 6) {
+                    // The first dropped digit decides the half-up rounding
+                    roundUp = c >= '5';
+                    decimals++;
+                }
+            } else {
+                // Exponents and anything unexpected take the exact path
+                valid = false;
+            }
+        }
+        int scale = Math.max(decimals, 0);
+        if (!valid || digits + 6 - Math.min(scale, 6) > MAX_FAST_DIGITS) {
+            BigDecimal decimal = token == JsonToken.VALUE_STRING ? new BigDecimal(p.getText()) : p.getDecimalValue();
+            return decimal.movePointRight(6).setScale(0, RoundingMode.HALF_UP).longValue();
+        }
+        for (int d = scale; d < 6; d++) {
+            result *= 10;
+        }
+        if (roundUp) {
+            result++;
+        }
+        return negative ? -result : result;
+    }
+
+    /**
+     * Converts a number of a binary format, which carries its value instead of characters. A double is rounded
+     * from its shortest decimal form, the {@link BigDecimal} that data binding makes of it, so it decodes like
+     * the same number in JSON.
+     */
+    private static long readBinaryFixed(JsonParser p, JsonToken token) throws IOException {
+        if (token != JsonToken.VALUE_NUMBER_INT && token != JsonToken.VALUE_NUMBER_FLOAT) {
+            throw new JsonParseException(p, "Expected a number but got " + token);
+        }
+        switch (p.getNumberType()) {
+            case INT:
+            case LONG:
+                return p.getLongValue() * GameRoundFrame.SCALE;
+            case FLOAT:
+            case DOUBLE:
+                return BigDecimal.valueOf(p.getDoubleValue()).movePointRight(6).setScale(0, RoundingMode.HALF_UP)
+                        .longValue();
+            default:
+                return p.getDecimalValue().movePointRight(6).setScale(0, RoundingMode.HALF_UP).longValue();
+        }
+    }
+
+    private static void readRoundId(JsonParser p, JsonToken token, GameRoundFrame frame) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return;
+        }
+        if (token == JsonToken.VALUE_EMBEDDED_OBJECT) {
+            // Binary formats write a UUID as its 16 bytes
+            byte[] bytes = p.getBinaryValue();
+            if (bytes.length != 16) {
+                throw new JsonParseException(p, "Invalid round id of " + bytes.length + " bytes");
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            frame.hasRoundId = true;
+            frame.roundIdMostSigBits = buffer.getLong();
+            frame.roundIdLeastSigBits = buffer.getLong();
+            return;
+        }
+        expect(p, token, JsonToken.VALUE_STRING);
+        char[] chars = p.getTextCharacters();
+        int offset = p.getTextOffset();
+        if (p.getTextLength() != 36) {
+            throw new JsonParseException(p, "Invalid round id: " + p.getText());
+        }
+        long most = 0;
+        long least = 0;
+        int nibbles = 0;
+        for (int i = 0; i < 36; i++) {
+            char c = chars[offset + i];
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    throw new JsonParseException(p, "Invalid round id: " + p.getText());
+                }
+                continue;
+            }
+            int nibble = Character.digit(c, 16);
+            if (nibble < 0) {
+                throw new JsonParseException(p, "Invalid round id: " + p.getText());
+            }
+            if (nibbles++ < 16) {
+                most = (most << 4) | nibble;
+            } else {
+                least = (least << 4) | nibble;
+            }
+        }
+        frame.hasRoundId = true;
+        frame.roundIdMostSigBits = most;
+        frame.roundIdLeastSigBits = least;
+    }
+
+    private static void expect(JsonParser p, JsonToken actual, JsonToken expected) throws JsonParseException {
+        if (actual != expected) {
+            throw new JsonParseException(p, "Expected " + expected + " but got " + actual);
+        }
+    }
+}
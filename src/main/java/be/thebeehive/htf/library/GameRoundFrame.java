@@ -0,0 +1,271 @@
+package be.thebeehive.htf.library;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Primitive, reusable form of a {@link be.thebeehive.htf.library.protocol.server.GameRoundServerMessage},
+ * filled by {@link GameRoundDecoder}.
+ * <p>
+ * Values are fixed-point {@code long}s scaled by {@link #SCALE}; actions and effects are stored column-wise
+ * in message order. Arrays only grow, so they can be longer than the action or effect count. A frame is
+ * overwritten by the next decoded round and must not be kept after the listener returns.
+ */
+public final class GameRoundFrame {
+
+    /**
+     * Number of fixed-point units per whole unit (6 decimal places).
+     */
+    public static final long SCALE = 1_000_000L;
+
+    long round;
+    boolean hasRoundId;
+    long roundIdMostSigBits;
+    long roundIdLeastSigBits;
+
+    boolean alive;
+    long hullStrength;
+    long maxHullStrength;
+    long crewHealth;
+    long maxCrewHealth;
+
+    int actionCount;
+    long[] actionIds = new long[16];
+    long[] actionEffectIds = new long[16];
+    long[] actionHull = new long[16];
+    long[] actionMaxHull = new long[16];
+    long[] actionCrew = new long[16];
+    long[] actionMaxCrew = new long[16];
+
+    int effectCount;
+    long[] effectIds = new long[16];
+    int[] effectSteps = new int[16];
+    long[] effectHull = new long[16];
+    long[] effectMaxHull = new long[16];
+    long[] effectCrew = new long[16];
+    long[] effectMaxCrew = new long[16];
+
+    // Scratch of the decoder for one Values object, so a decoder can be shared between threads
+    final long[] values = new long[4];
+
+    // Latency timings of a round travelling through a PipelinedHtfClient, see HtfClient#latencyClock()
+    long receivedNanos;
+    long decodedNanos;
+
+    public GameRoundFrame() {
+
+    }
+
+    void clear() {
+        round = 0;
+        hasRoundId = false;
+        roundIdMostSigBits = 0;
+        roundIdLeastSigBits = 0;
+        alive = false;
+        hullStrength = 0;
+        maxHullStrength = 0;
+        crewHealth = 0;
+        maxCrewHealth = 0;
+        actionCount = 0;
+        effectCount = 0;
+    }
+
+    int addAction() {
+        if (actionCount == actionIds.length) {
+            int capacity = actionCount * 2;
+            actionIds = Arrays.copyOf(actionIds, capacity);
+            actionEffectIds = Arrays.copyOf(actionEffectIds, capacity);
+            actionHull = Arrays.copyOf(actionHull, capacity);
+            actionMaxHull = Arrays.copyOf(actionMaxHull, capacity);
+            actionCrew = Arrays.copyOf(actionCrew, capacity);
+            actionMaxCrew = Arrays.copyOf(actionMaxCrew, capacity);
+        }
+        int a = actionCount++;
+        actionIds[a] = 0;
+        actionEffectIds[a] = 0;
+        actionHull[a] = 0;
+        actionMaxHull[a] = 0;
+        actionCrew[a] = 0;
+        actionMaxCrew[a] = 0;
+        return a;
+    }
+
+    int addEffect() {
+        if (effectCount == effectIds.length) {
+            int capacity = effectCount * 2;
+            effectIds = Arrays.copyOf(effectIds, capacity);
+            effectSteps = Arrays.copyOf(effectSteps, capacity);
+            effectHull = Arrays.copyOf(effectHull, capacity);
+            effectMaxHull = Arrays.copyOf(effectMaxHull, capacity);
+            effectCrew = Arrays.copyOf(effectCrew, capacity);
+            effectMaxCrew = Arrays.copyOf(effectMaxCrew, capacity);
+        }
+        int e = effectCount++;
+        effectIds[e] = 0;
+        effectSteps[e] = 0;
+        effectHull[e] = 0;
+        effectMaxHull[e] = 0;
+        effectCrew[e] = 0;
+        effectMaxCrew[e] = 0;
+        return e;
+    }
+
+    /**
+     * Copies another frame into this one, e.g. to keep a round beyond the listener call. Arrays only grow,
+     * so copying same-sized rounds does not allocate.
+     *
+     * @param other the frame to copy.
+     * @return this frame.
+     */
+    public GameRoundFrame set(GameRoundFrame other) {
+        round = other.round;
+        hasRoundId = other.hasRoundId;
+        roundIdMostSigBits = other.roundIdMostSigBits;
+        roundIdLeastSigBits = other.roundIdLeastSigBits;
+        alive = other.alive;
+        hullStrength = other.hullStrength;
+        maxHullStrength = other.maxHullStrength;
+        crewHealth = other.crewHealth;
+        maxCrewHealth = other.maxCrewHealth;
+
+        int a = other.actionCount;
+        if (actionIds.length < a) {
+            actionIds = new long[a];
+            actionEffectIds = new long[a];
+            actionHull = new long[a];
+            actionMaxHull = new long[a];
+            actionCrew = new long[a];
+            actionMaxCrew = new long[a];
+        }
+        actionCount = a;
+        System.arraycopy(other.actionIds, 0, actionIds, 0, a);
+        System.arraycopy(other.actionEffectIds, 0, actionEffectIds, 0, a);
+        System.arraycopy(other.actionHull, 0, actionHull, 0, a);
+        System.arraycopy(other.actionMaxHull, 0, actionMaxHull, 0, a);
+        System.arraycopy(other.actionCrew, 0, actionCrew, 0, a);
+        System.arraycopy(other.actionMaxCrew, 0, actionMaxCrew, 0, a);
+
+        int e = other.effectCount;
+        if (effectIds.length < e) {
+            effectIds = new long[e];
+            effectSteps = new int[e];
+            effectHull = new long[e];
+            effectMaxHull = new long[e];
+            effectCrew = new long[e];
+            effectMaxCrew = new long[e];
+        }
+        effectCount = e;
+        System.arraycopy(other.effectIds, 0, effectIds, 0, e);
+        System.arraycopy(other.effectSteps, 0, effectSteps, 0, e);
+        System.arraycopy(other.effectHull, 0, effectHull, 0, e);
+        System.arraycopy(other.effectMaxHull, 0, effectMaxHull, 0, e);
+        System.arraycopy(other.effectCrew, 0, effectCrew, 0, e);
+        System.arraycopy(other.effectMaxCrew, 0, effectMaxCrew, 0, e);
+        return this;
+    }
+
+    public long getRound() {
+        return round;
+    }
+
+    /**
+     * @return the round id as a new UUID, or null if the round had none.
+     */
+    public UUID getRoundId() {
+        return hasRoundId ? new UUID(roundIdMostSigBits, roundIdLeastSigBits) : null;
+    }
+
+    public boolean hasRoundId() {
+        return hasRoundId;
+    }
+
+    public long getRoundIdMostSigBits() {
+        return roundIdMostSigBits;
+    }
+
+    public long getRoundIdLeastSigBits() {
+        return roundIdLeastSigBits;
+    }
+
+    /**
+     * @return whether our submarine is alive according to the server.
+     */
+    public boolean isAlive() {
+        return alive;
+    }
+
+    public long getHullStrength() {
+        return hullStrength;
+    }
+
+    public long getMaxHullStrength() {
+        return maxHullStrength;
+    }
+
+    public long getCrewHealth() {
+        return crewHealth;
+    }
+
+    public long getMaxCrewHealth() {
+        return maxCrewHealth;
+    }
+
+    public int getActionCount() {
+        return actionCount;
+    }
+
+    public long[] getActionIds() {
+        return actionIds;
+    }
+
+    /**
+     * @return the id of the effect each action blocks; 0 when the message had none.
+     */
+    public long[] getActionEffectIds() {
+        return actionEffectIds;
+    }
+
+    public long[] getActionHull() {
+        return actionHull;
+    }
+
+    public long[] getActionMaxHull() {
+        return actionMaxHull;
+    }
+
+    public long[] getActionCrew() {
+        return actionCrew;
+    }
+
+    public long[] getActionMaxCrew() {
+        return actionMaxCrew;
+    }
+
+    public int getEffectCount() {
+        return effectCount;
+    }
+
+    public long[] getEffectIds() {
+        return effectIds;
+    }
+
+    public int[] getEffectSteps() {
+        return effectSteps;
+    }
+
+    public long[] getEffectHull() {
+        return effectHull;
+    }
+
+    public long[] getEffectMaxHull() {
+        return effectMaxHull;
+    }
+
+    public long[] getEffectCrew() {
+        return effectCrew;
+    }
+
+    public long[] getEffectMaxCrew() {
+        return effectMaxCrew;
+    }
+}
@@ -9,16 +9,48 @@ import be.thebeehive.htf.library.protocol.server.WarningServerMessage;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.framing.CloseFrame;
+import org.java_websocket.framing.TextFrame;
 import org.java_websocket.handshake.ServerHandshake;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
 
 public class HtfClient extends WebSocketClient {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(HtfClient.class);
+
     private final HtfClientListener listener;
+    private final HtfCodecs codecs;
     private final ObjectMapper objectMapper;
+    private final GameRoundDecoder decoder;
+    private final GameRoundFrame frame;
+    private final WireFormat wireFormat;
+    private final ObjectMapper binaryObjectMapper;
+    private final GameRoundDecoder binaryDecoder;
+    private final SelectActionsWriter selectActionsWriter = new SelectActionsWriter();
+    private volatile boolean binary;
+
+    // Set once by a ReconnectSupervisor
+    private volatile ReconnectSupervisor reconnectSupervisor;
+    private CachingDnsResolver dnsResolver;
+    private volatile boolean closeRequested;
+    private volatile boolean resetting;
+    private volatile boolean reconnecting;
+    private volatile int reconnectAttempts;
+
+    // Stage timings, only taken while a latency listener is set; 0 when unknown
+    private volatile LatencyListener latencyListener;
+    private volatile long roundReceivedNanos;
+    private volatile long decideStartNanos;
 
     public HtfClient(
             String uri,
@@ -26,55 +58,430 @@ public class HtfClient extends WebSocketClient {
             EnvironmentType environmentType,
             HtfClientListener listener
     ) throws URISyntaxException {
-        super(new URI(uri), new HashMap<String, String>() {{
+        this(uri, apiKey, environmentType, listener, WireFormat.JSON);
+    }
+
+    /**
+     * @param wireFormat the format to request from the server, see {@link WireFormat}.
+     */
+    public HtfClient(
+            String uri,
+            String apiKey,
+            EnvironmentType environmentType,
+            HtfClientListener listener,
+            WireFormat wireFormat
+    ) throws URISyntaxException {
+        this(uri, apiKey, environmentType, listener, new HtfCodecs(wireFormat));
+    }
+
+    /**
+     * @param codecs the mappers and decoders of the format to request from the server, may be shared with
+     *               other clients, see {@link HtfCodecs}.
+     */
+    public HtfClient(
+            String uri,
+            String apiKey,
+            EnvironmentType environmentType,
+            HtfClientListener listener,
+            HtfCodecs codecs
+    ) throws URISyntaxException {
+        super(new URI(uri), new TextBufferDraft(), new HashMap<String, String>() {{
             this.put("apiKey", apiKey);
             this.put("clientType", "PLAYER");
             this.put("environment", environmentType.name());
+            if (codecs.getWireFormat().isBinary()) {
+                this.put(WireFormat.HEADER, codecs.getWireFormat().name());
+            }
         }});
         this.listener = listener;
-        this.objectMapper = new ObjectMapper();
+        this.codecs = codecs;
+        this.objectMapper = codecs.getObjectMapper();
+        this.wireFormat = codecs.getWireFormat();
+        this.binaryObjectMapper = codecs.getBinaryObjectMapper();
+        if (listener instanceof HtfFrameListener) {
+            this.decoder = codecs.getDecoder();
+            this.binaryDecoder = codecs.getBinaryDecoder();
+            this.frame = new GameRoundFrame();
+        } else {
+            this.decoder = null;
+            this.binaryDecoder = null;
+            this.frame = null;
+        }
     }
 
     public void send(SelectActionsClientMessage msg) {
+        LatencyListener latency = this.latencyListener;
+        long started = this.answerStarted(latency);
         try {
-            this.send(this.objectMapper.writeValueAsString(msg));
+            if (this.binary) {
+                byte[] bytes = this.binaryObjectMapper.writeValueAsBytes(msg);
+                long serialized = this.answerSerialized(latency, started);
+                this.send(bytes);
+                this.answerSent(latency, serialized);
+            } else {
+                synchronized (this.selectActionsWriter) {
+                    ByteBuffer bytes = this.selectActionsWriter.write(msg.getRoundId(), msg.getActionIds());
+                    long serialized = this.answerSerialized(latency, started);
+                    this.sendText(bytes);
+                    this.answerSent(latency, serialized);
+                }
+            }
         } catch (JsonProcessingException ex) {
             this.onError(ex);
         }
     }
 
+    /**
+     * Sends the selected actions of a round without building a {@link SelectActionsClientMessage}.
+     * In JSON mode the message is written by a {@link SelectActionsWriter} and sent without boxing or reflection.
+     *
+     * @param roundIdMostSigBits  the most significant bits of the round id.
+     * @param roundIdLeastSigBits the least significant bits of the round id.
+     * @param actionIds           the selected action ids.
+     * @param count               the number of selected action ids.
+     */
+    public void sendActions(long roundIdMostSigBits, long roundIdLeastSigBits, long[] actionIds, int count) {
+        if (this.binary) {
+            List<Long> ids = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                ids.add(actionIds[i]);
+            }
+            this.send(new SelectActionsClientMessage(new UUID(roundIdMostSigBits, roundIdLeastSigBits), ids));
+            return;
+        }
+        LatencyListener latency = this.latencyListener;
+        long started = this.answerStarted(latency);
+        synchronized (this.selectActionsWriter) {
+            ByteBuffer bytes = this.selectActionsWriter.write(roundIdMostSigBits, roundIdLeastSigBits, actionIds, count);
+            long serialized = this.answerSerialized(latency, started);
+            this.sendText(bytes);
+            this.answerSent(latency, serialized);
+        }
+    }
+
+    /**
+     * Records DECIDE of the round being answered.
+     *
+     * @return the time serializing started, or 0 without a latency listener.
+     */
+    private long answerStarted(LatencyListener latency) {
+        if (latency == null) {
+            return 0L;
+        }
+        long now = System.nanoTime();
+        long decideStart = this.decideStartNanos;
+        if (decideStart != 0L) {
+            this.decideStartNanos = 0L;
+            latency.onLatency(LatencyStage.DECIDE, now - decideStart);
+        }
+        return now;
+    }
+
+    private long answerSerialized(LatencyListener latency, long started) {
+        if (latency == null || started == 0L) {
+            return 0L;
+        }
+        long now = System.nanoTime();
+        latency.onLatency(LatencyStage.SERIALIZE, now - started);
+        return now;
+    }
+
+    private void answerSent(LatencyListener latency, long serialized) {
+        if (latency == null || serialized == 0L) {
+            return;
+        }
+        long now = System.nanoTime();
+        latency.onLatency(LatencyStage.SEND, now - serialized);
+        long received = this.roundReceivedNanos;
+        if (received != 0L) {
+            this.roundReceivedNanos = 0L;
+            latency.onLatency(LatencyStage.ROUND_TRIP, now - received);
+        }
+    }
+
+    /**
+     * @return {@link System#nanoTime()} while a latency listener is set, otherwise 0 without reading the clock.
+     */
+    protected final long latencyClock() {
+        return this.latencyListener != null ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Records PARSE of a frame that arrived at receivedNanos and was just decoded.
+     *
+     * @param receivedNanos the {@link #latencyClock()} when the frame arrived.
+     * @return the time the frame was decoded, or 0 if unknown.
+     */
+    protected final long recordParse(long receivedNanos) {
+        LatencyListener latency = this.latencyListener;
+        if (latency == null || receivedNanos == 0L) {
+            return 0L;
+        }
+        long now = System.nanoTime();
+        latency.onLatency(LatencyStage.PARSE, now - receivedNanos);
+        return now;
+    }
+
+    /**
+     * Records DISPATCH of a round that is about to be handed to the listener, and starts its DECIDE.
+     *
+     * @param receivedNanos the time the round arrived, see {@link #latencyClock()}.
+     * @param decodedNanos  the time the round was decoded, see {@link #recordParse(long)}.
+     */
+    protected final void recordDispatch(long receivedNanos, long decodedNanos) {
+        LatencyListener latency = this.latencyListener;
+        if (latency == null || decodedNanos == 0L) {
+            this.decideStartNanos = 0L;
+            this.roundReceivedNanos = 0L;
+            return;
+        }
+        long now = System.nanoTime();
+        latency.onLatency(LatencyStage.DISPATCH, now - decodedNanos);
+        this.roundReceivedNanos = receivedNanos;
+        this.decideStartNanos = now;
+    }
+
+    /**
+     * Measures the stages of every round from now on, see {@link LatencyStage}. Without a listener no clock is
+     * read at all.
+     *
+     * @param latencyListener receives the timings, e.g. {@link LatencyHistograms}; null to stop measuring.
+     */
+    public void setLatencyListener(LatencyListener latencyListener) {
+        this.latencyListener = latencyListener;
+    }
+
+    public LatencyListener getLatencyListener() {
+        return latencyListener;
+    }
+
+    /**
+     * Sends UTF-8 bytes as a text frame. The bytes are copied into the outgoing frame before this returns.
+     */
+    private void sendText(ByteBuffer bytes) {
+        TextFrame frame = new TextFrame();
+        frame.setPayload(bytes);
+        frame.setFin(true);
+        this.sendFrame(frame);
+    }
+
     @Override
     public void onMessage(String messageStr) {
         try {
+            long received = this.latencyClock();
+            if (this.decoder != null && this.decoder.decode(messageStr, this.frame)) {
+                this.recordDispatch(received, this.recordParse(received));
+                ((HtfFrameListener) this.listener).onGameRoundFrame(this, this.frame);
+                return;
+            }
+
             ServerMessage msg = this.objectMapper.readValue(messageStr, ServerMessage.class);
+            this.dispatchTimed(msg, received);
+        } catch (Exception ex) {
+            this.onError(ex);
+        }
+    }
+
+    /**
+     * Handles a complete text frame straight from its UTF-8 payload, without decoding it into a String first.
+     * Fragmented text messages still arrive through {@link #onMessage(String)}.
+     */
+    public void onMessage(TextBuffer text) {
+        try {
+            long received = this.latencyClock();
+            ByteBuffer bytes = text.getBytes();
+            if (this.decoder != null && this.decoder.decode(bytes, this.frame)) {
+                this.recordDispatch(received, this.recordParse(received));
+                ((HtfFrameListener) this.listener).onGameRoundFrame(this, this.frame);
+                return;
+            }
+
+            ServerMessage msg = readServerMessage(this.objectMapper, bytes);
+            this.dispatchTimed(msg, received);
+        } catch (Exception ex) {
+            this.onError(ex);
+        }
+    }
 
-            if (msg instanceof ErrorServerMessage) {
-                this.listener.onErrorServerMessage(this, (ErrorServerMessage) msg);
-            } else if (msg instanceof GameEndedServerMessage) {
-                this.listener.onGameEndedServerMessage(this, (GameEndedServerMessage) msg);
-            } else if (msg instanceof GameRoundServerMessage) {
-                this.listener.onGameRoundServerMessage(this, (GameRoundServerMessage) msg);
-            } else if (msg instanceof WarningServerMessage) {
-                this.listener.onWarningServerMessage(this, (WarningServerMessage) msg);
+    /**
+     * Handles a binary frame, encoded in the negotiated {@link WireFormat}.
+     */
+    @Override
+    public void onMessage(ByteBuffer bytes) {
+        try {
+            long received = this.latencyClock();
+            if (this.binaryObjectMapper == null) {
+                throw new IllegalStateException("Received a binary frame but no binary wire format was requested");
+            }
+            if (this.binaryDecoder != null && this.binaryDecoder.decode(bytes, this.frame)) {
+                this.recordDispatch(received, this.recordParse(received));
+                ((HtfFrameListener) this.listener).onGameRoundFrame(this, this.frame);
+                return;
             }
+
+            ServerMessage msg = readServerMessage(this.binaryObjectMapper, bytes);
+            this.dispatchTimed(msg, received);
         } catch (Exception ex) {
             this.onError(ex);
         }
     }
 
+    /**
+     * Reads a server message from the remaining bytes of a buffer, leaving the buffer's position unchanged.
+     */
+    protected static ServerMessage readServerMessage(ObjectMapper objectMapper, ByteBuffer bytes) throws IOException {
+        if (bytes.hasArray()) {
+            return objectMapper.readValue(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining(), ServerMessage.class);
+        }
+        byte[] data = new byte[bytes.remaining()];
+        bytes.duplicate().get(data);
+        return objectMapper.readValue(data, ServerMessage.class);
+    }
+
+    private void dispatchTimed(ServerMessage msg, long receivedNanos) throws Exception {
+        long decoded = this.recordParse(receivedNanos);
+        if (msg instanceof GameRoundServerMessage) {
+            this.recordDispatch(receivedNanos, decoded);
+        }
+        this.dispatch(msg);
+    }
+
+    /**
+     * Passes a decoded server message to the listener.
+     */
+    protected void dispatch(ServerMessage msg) throws Exception {
+        if (msg instanceof ErrorServerMessage) {
+            this.listener.onErrorServerMessage(this, (ErrorServerMessage) msg);
+        } else if (msg instanceof GameEndedServerMessage) {
+            this.listener.onGameEndedServerMessage(this, (GameEndedServerMessage) msg);
+        } else if (msg instanceof GameRoundServerMessage) {
+            this.listener.onGameRoundServerMessage(this, (GameRoundServerMessage) msg);
+        } else if (msg instanceof WarningServerMessage) {
+            this.listener.onWarningServerMessage(this, (WarningServerMessage) msg);
+        }
+    }
+
+    protected HtfClientListener getListener() {
+        return listener;
+    }
+
+    /**
+     * @return the mappers and decoders of this client, possibly shared with other clients.
+     */
+    protected HtfCodecs getCodecs() {
+        return codecs;
+    }
+
+    protected ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+
+    /**
+     * @return the mapper of the requested binary format, or null when JSON was requested.
+     */
+    protected ObjectMapper getBinaryObjectMapper() {
+        return binaryObjectMapper;
+    }
+
+    /**
+     * @return the requested wire format.
+     */
+    public WireFormat getWireFormat() {
+        return wireFormat;
+    }
+
+    /**
+     * @return true if the server accepted the requested binary format, so messages are sent as binary frames.
+     */
+    public boolean isBinary() {
+        return binary;
+    }
+
+    /**
+     * Lets a supervisor reconnect this client, see {@link ReconnectSupervisor#supervise(HtfClient)}.
+     */
+    void supervise(ReconnectSupervisor supervisor, CachingDnsResolver resolver) {
+        this.reconnectSupervisor = supervisor;
+        this.dnsResolver = resolver;
+        this.setDnsResolver(resolver);
+    }
+
+    /**
+     * Schedules a reconnect if a supervisor is set, counting the attempt.
+     *
+     * @param code the close code of the lost connection.
+     */
+    void connectionLost(int code) {
+        ReconnectSupervisor supervisor = this.reconnectSupervisor;
+        if (supervisor == null || this.closeRequested) {
+            this.reconnecting = false;
+            return;
+        }
+        if (code == CloseFrame.NEVER_CONNECTED) {
+            // The address may have changed, resolve it again
+            this.dnsResolver.invalidate();
+        }
+        this.reconnecting = true;
+        if (!supervisor.scheduleReconnect(this, this.reconnectAttempts++)) {
+            this.reconnecting = false;
+            LOGGER.warn("Giving up reconnecting to {}", getURI());
+        }
+    }
+
+    /**
+     * @return true while a supervisor is reconnecting this client after a lost connection.
+     */
+    public boolean isReconnecting() {
+        return reconnecting;
+    }
+
+    /**
+     * Closes the connection for good: a supervisor does not reconnect it.
+     */
+    @Override
+    public void close() {
+        // reconnect() closes the old connection through this method too
+        if (!this.resetting) {
+            this.closeRequested = true;
+            this.reconnecting = false;
+        }
+        super.close();
+    }
+
+    @Override
+    public void reconnect() {
+        this.closeRequested = false;
+        this.resetting = true;
+        try {
+            super.reconnect();
+        } finally {
+            this.resetting = false;
+        }
+    }
+
     @Override
     public void onOpen(ServerHandshake handshake) {
-        System.out.println("You are connected to HtfServer: " + getURI());
+        this.reconnectAttempts = 0;
+        this.reconnecting = false;
+        this.binary = this.wireFormat.isBinary() && this.wireFormat == WireFormat.fromHeader(handshake.getFieldValue(WireFormat.HEADER));
+        LOGGER.info("You are connected to HtfServer: {}", getURI());
     }
 
     @Override
     public void onClose(int code, String reason, boolean remote) {
-        System.out.println("You have been disconnected from: " + getURI() + "; Code: " + code + " " + reason);
+        LOGGER.info("You have been disconnected from: {}; Code: {} {}", getURI(), code, reason);
+        if (remote && code == CloseFrame.NORMAL) {
+            // The server ended the session, e.g. because the game ended
+            this.reconnecting = false;
+        } else {
+            this.connectionLost(code);
+        }
     }
 
     @Override
     public void onError(Exception ex) {
-        this.close();
-        System.err.println("Exception occurred ...\n" + ex);
+        // Not this.close(), so a supervisor still reconnects
+        super.close();
+        LOGGER.error("Exception occurred ...", ex);
     }
 }
@@ -0,0 +1,66 @@
+package be.thebeehive.htf.library;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The ObjectMappers and {@link GameRoundDecoder}s of a {@link WireFormat}.
+ * <p>
+ * Mappers and decoders are thread-safe and expensive to build, so one instance can be shared by every
+ * {@link HtfClient} of a process instead of every client creating its own. Clients still decode into their
+ * own {@link GameRoundFrame}.
+ */
+public final class HtfCodecs {
+
+    private final WireFormat wireFormat;
+    private final ObjectMapper objectMapper;
+    private final ObjectMapper binaryObjectMapper;
+    private final GameRoundDecoder decoder;
+    private final GameRoundDecoder binaryDecoder;
+
+    public HtfCodecs() {
+        this(WireFormat.JSON);
+    }
+
+    /**
+     * @param wireFormat the format clients request from the server, see {@link WireFormat}.
+     */
+    public HtfCodecs(WireFormat wireFormat) {
+        this.wireFormat = wireFormat;
+        this.objectMapper = new ObjectMapper();
+        this.binaryObjectMapper = wireFormat.isBinary() ? wireFormat.newObjectMapper() : null;
+        this.decoder = new GameRoundDecoder(this.objectMapper.getFactory());
+        this.binaryDecoder = wireFormat.isBinary() ? new GameRoundDecoder(this.binaryObjectMapper.getFactory()) : null;
+    }
+
+    public WireFormat getWireFormat() {
+        return wireFormat;
+    }
+
+    /**
+     * @return the mapper of JSON text frames.
+     */
+    public ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+
+    /**
+     * @return the mapper of the binary format, or null for JSON.
+     */
+    public ObjectMapper getBinaryObjectMapper() {
+        return binaryObjectMapper;
+    }
+
+    /**
+     * @return the decoder of JSON text frames.
+     */
+    public GameRoundDecoder getDecoder() {
+        return decoder;
+    }
+
+    /**
+     * @return the decoder of the binary format, or null for JSON.
+     */
+    public GameRoundDecoder getBinaryDecoder() {
+        return binaryDecoder;
+    }
+}
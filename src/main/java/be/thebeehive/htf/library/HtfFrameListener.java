@@ -0,0 +1,18 @@
+package be.thebeehive.htf.library;
+
+/**
+ * A listener that receives game rounds as a primitive {@link GameRoundFrame} instead of a
+ * {@link be.thebeehive.htf.library.protocol.server.GameRoundServerMessage}.
+ * <p>
+ * {@link HtfClient} decodes rounds for such a listener with the streaming {@link GameRoundDecoder} and calls
+ * {@link #onGameRoundFrame(HtfClient, GameRoundFrame)} instead of {@code onGameRoundServerMessage}.
+ * All other messages are delivered as before.
+ */
+public interface HtfFrameListener extends HtfClientListener {
+
+    /**
+     * A new round has started. The frame is reused for the next round.
+     */
+    void onGameRoundFrame(HtfClient client, GameRoundFrame frame) throws Exception;
+
+}
@@ -0,0 +1,98 @@
+package be.thebeehive.htf.library;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link LatencyListener} that records every {@link LatencyStage} in its own {@link LatencyHistogram}.
+ * <p>
+ * One instance can be shared by many clients. {@link #startSummary(long, TimeUnit)} logs the histograms
+ * periodically and starts over, so every summary covers one interval.
+ */
+public final class LatencyHistograms implements LatencyListener, AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LatencyHistograms.class);
+
+    private static final LatencyStage[] STAGES = LatencyStage.values();
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[STAGES.length];
+    private ScheduledExecutorService summaryExecutor;
+
+    public LatencyHistograms() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    @Override
+    public void onLatency(LatencyStage stage, long nanos) {
+        histograms[stage.ordinal()].record(nanos);
+    }
+
+    /**
+     * @param stage the stage.
+     * @return the histogram of the stage, in nanoseconds.
+     */
+    public LatencyHistogram get(LatencyStage stage) {
+        return histograms[stage.ordinal()];
+    }
+
+    /**
+     * Removes all recorded values.
+     */
+    public void reset() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * @return a line per stage with the count, p50, p90, p99 and max in microseconds.
+     */
+    public String summary() {
+        StringBuilder sb = new StringBuilder("Latency (us)");
+        for (LatencyStage stage : STAGES) {
+            LatencyHistogram h = get(stage);
+            sb.append(String.format("%n  %-10s count %d, p50 %.1f, p90 %.1f, p99 %.1f, max %.1f",
+                    stage, h.getCount(), h.getValueAtPercentile(50) / 1_000.0, h.getValueAtPercentile(90) / 1_000.0,
+                    h.getValueAtPercentile(99) / 1_000.0, h.getMax() / 1_000.0));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Logs the {@link #summary()} of every interval on a daemon thread, then resets the histograms.
+     *
+     * @param period the length of an interval.
+     * @param unit   the unit of period.
+     */
+    public synchronized void startSummary(long period, TimeUnit unit) {
+        if (summaryExecutor != null) {
+            throw new IllegalStateException("The summary was already started");
+        }
+        summaryExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "htf-latency-summary");
+            thread.setDaemon(true);
+            return thread;
+        });
+        summaryExecutor.scheduleAtFixedRate(() -> {
+            LOGGER.info(summary());
+            reset();
+        }, period, period, unit);
+    }
+
+    /**
+     * Stops the periodic summary.
+     */
+    @Override
+    public synchronized void close() {
+        if (summaryExecutor != null) {
+            summaryExecutor.shutdownNow();
+            summaryExecutor = null;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package be.thebeehive.htf.library;
+
+/**
+ * Receives the stage timings of an {@link HtfClient}, see {@link HtfClient#setLatencyListener(LatencyListener)}.
+ * <p>
+ * Called on the thread that ran the stage, on the hot path of every round, so an implementation must be cheap
+ * and thread-safe, e.g. {@link LatencyHistograms}.
+ */
+public interface LatencyListener {
+
+    /**
+     * @param stage the stage that finished.
+     * @param nanos the duration of the stage in nanoseconds.
+     */
+    void onLatency(LatencyStage stage, long nanos);
+
+}
@@ -0,0 +1,23 @@
+package be.thebeehive.htf.library;
+
+/**
+ * Enum representing the stages between a round arriving and its answer leaving, as measured by
+ * {@link HtfClient} for a {@link LatencyListener}.
+ * <p>
+ * PARSE: from the frame arriving until it was decoded, including any wait for a decode thread.
+ * DISPATCH: from decoded until the listener was called with the round.
+ * DECIDE: from the listener call until it sent its answer.
+ * SERIALIZE: writing the answer.
+ * SEND: handing the answer to the WebSocket, which writes it to the socket on its own thread.
+ * ROUND_TRIP: from the frame arriving until the answer was sent, the sum of all stages.
+ */
+public enum LatencyStage {
+
+    PARSE,
+    DISPATCH,
+    DECIDE,
+    SERIALIZE,
+    SEND,
+    ROUND_TRIP;
+
+}
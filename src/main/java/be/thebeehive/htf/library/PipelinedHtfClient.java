@@ -0,0 +1,420 @@
+package be.thebeehive.htf.library;
+
+import be.thebeehive.htf.library.protocol.client.SelectActionsClientMessage;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+import be.thebeehive.htf.library.protocol.server.ServerMessage;
+import org.java_websocket.handshake.ServerHandshake;
+
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An {@link HtfClient} that keeps strategy work off the WebSocket read thread.
+ * <p>
+ * Messages flow through three stages, each on its own single-thread executor and connected by bounded queues:
+ * <ol>
+ *     <li>decode: parses frames into server messages, or into {@link GameRoundFrame}s for an
+ *     {@link HtfFrameListener};</li>
+ *     <li>decide: calls the listener, one message at a time and in arrival order;</li>
+ *     <li>send: serializes and sends the selected actions.</li>
+ * </ol>
+ * A round that is still waiting to be decided when a newer round arrives is dropped, and so is an answer to
+ * any round but the latest. The read thread only enqueues, so a slow decision never delays pings or the
+ * reading of the next frames. If the decode queue is full, which means the client fell hopelessly behind,
+ * the frame is dropped and counted instead of blocking the read thread.
+ * <p>
+ * Every connection gets its own pipeline. When the connection closes, the stages finish the messages that
+ * were already received, e.g. the final {@link be.thebeehive.htf.library.protocol.server.GameEndedServerMessage},
+ * and then stop.
+ */
+public class PipelinedHtfClient extends HtfClient {
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 64;
+
+    // Identity markers that tell a stage the connection closed
+    private static final Object CLOSE_FRAME = new Object();
+    private static final Object CLOSE_ITEM = new Object();
+    private static final SelectActionsClientMessage CLOSE_SEND = new SelectActionsClientMessage();
+
+    private final int queueCapacity;
+    private final boolean frames;
+
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private final AtomicLong droppedRounds = new AtomicLong();
+    private final AtomicLong staleAnswers = new AtomicLong();
+
+    private volatile Pipeline pipeline;
+
+    public PipelinedHtfClient(
+            String uri,
+            String apiKey,
+            EnvironmentType environmentType,
+            HtfClientListener listener
+    ) throws URISyntaxException {
+        this(uri, apiKey, environmentType, listener, WireFormat.JSON, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * @param wireFormat    the format to request from the server, see {@link WireFormat}.
+     * @param queueCapacity the capacity of every queue between the stages.
+     */
+    public PipelinedHtfClient(
+            String uri,
+            String apiKey,
+            EnvironmentType environmentType,
+            HtfClientListener listener,
+            WireFormat wireFormat,
+            int queueCapacity
+    ) throws URISyntaxException {
+        this(uri, apiKey, environmentType, listener, new HtfCodecs(wireFormat), queueCapacity);
+    }
+
+    /**
+     * @param codecs        the mappers and decoders, may be shared with other clients, see {@link HtfCodecs}.
+     * @param queueCapacity the capacity of every queue between the stages.
+     */
+    public PipelinedHtfClient(
+            String uri,
+            String apiKey,
+            EnvironmentType environmentType,
+            HtfClientListener listener,
+            HtfCodecs codecs,
+            int queueCapacity
+    ) throws URISyntaxException {
+        super(uri, apiKey, environmentType, listener, codecs);
+        this.queueCapacity = queueCapacity;
+        this.frames = listener instanceof HtfFrameListener;
+    }
+
+    /**
+     * Queues the selected actions for the send stage.
+     */
+    @Override
+    public void send(SelectActionsClientMessage msg) {
+        Pipeline p = pipeline;
+        if (p == null || !p.sendQueue.offer(msg)) {
+            droppedFrames.incrementAndGet();
+        }
+    }
+
+    /**
+     * Sends the selected actions right away, unless a newer round already arrived. Writing the message takes
+     * well under a microsecond, so it does not need the send stage.
+     */
+    @Override
+    public void sendActions(long roundIdMostSigBits, long roundIdLeastSigBits, long[] actionIds, int count) {
+        Pipeline p = pipeline;
+        UUID latest = p == null ? null : p.latestRoundId;
+        if (latest != null && (latest.getMostSignificantBits() != roundIdMostSigBits
+                || latest.getLeastSignificantBits() != roundIdLeastSigBits)) {
+            staleAnswers.incrementAndGet();
+            return;
+        }
+        super.sendActions(roundIdMostSigBits, roundIdLeastSigBits, actionIds, count);
+    }
+
+    /**
+     * Queues a text frame for the decode stage. Called on the WebSocket read thread.
+     */
+    @Override
+    public void onMessage(String messageStr) {
+        enqueueFrame(messageStr);
+    }
+
+    /**
+     * Queues the raw payload of a text frame for the decode stage. Called on the WebSocket read thread.
+     */
+    @Override
+    public void onMessage(TextBuffer text) {
+        enqueueFrame(text);
+    }
+
+    /**
+     * Queues a binary frame for the decode stage. Called on the WebSocket read thread.
+     */
+    @Override
+    public void onMessage(ByteBuffer bytes) {
+        enqueueFrame(bytes);
+    }
+
+    private void enqueueFrame(Object message) {
+        Pipeline p = pipeline;
+        // The read thread is the only producer, so one slot stays free for the close marker
+        if (p == null || p.decodeQueue.remainingCapacity() <= 1) {
+            droppedFrames.incrementAndGet();
+            return;
+        }
+        // Written before the offer, which publishes it to the decode stage
+        p.receivedNanos[p.receivedHead] = latencyClock();
+        if (p.decodeQueue.offer(message)) {
+            p.receivedHead = (p.receivedHead + 1) % p.receivedNanos.length;
+        } else {
+            droppedFrames.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void onOpen(ServerHandshake handshake) {
+        pipeline = new Pipeline();
+        super.onOpen(handshake);
+    }
+
+    @Override
+    public void onClose(int code, String reason, boolean remote) {
+        Pipeline p = pipeline;
+        pipeline = null;
+        if (p != null) {
+            p.close();
+        }
+        super.onClose(code, reason, remote);
+    }
+
+    /**
+     * @return the number of frames or answers dropped because a queue was full or the connection closed.
+     */
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    /**
+     * @return the number of rounds dropped because a newer round arrived before they were decided.
+     */
+    public long getDroppedRounds() {
+        return droppedRounds.get();
+    }
+
+    /**
+     * @return the number of answers dropped because they were for an older round.
+     */
+    public long getStaleAnswers() {
+        return staleAnswers.get();
+    }
+
+    private static Thread stageThread(Runnable r, String name) {
+        Thread thread = new Thread(r, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * The queues and stage executors of one connection.
+     */
+    private final class Pipeline {
+
+        // Text frames as TextBuffer or String, binary frames as ByteBuffer
+        private final BlockingQueue<Object> decodeQueue = new ArrayBlockingQueue<>(queueCapacity + 1);
+        private final BlockingQueue<Object> decideQueue = new ArrayBlockingQueue<>(queueCapacity + 1);
+        private final BlockingQueue<SelectActionsClientMessage> sendQueue = new ArrayBlockingQueue<>(queueCapacity + 1);
+        // Spare frames for an HtfFrameListener: a frame is being decoded, queued, decided or here
+        private final BlockingQueue<GameRoundFrame> framePool;
+        private final GameRoundDecoder decoder;
+        private final GameRoundDecoder binaryDecoder;
+        private final ExecutorService decodeExecutor = Executors.newSingleThreadExecutor(r -> stageThread(r, "htf-decode"));
+        private final ExecutorService decideExecutor = Executors.newSingleThreadExecutor(r -> stageThread(r, "htf-decide"));
+        private final ExecutorService sendExecutor = Executors.newSingleThreadExecutor(r -> stageThread(r, "htf-send"));
+        private volatile UUID latestRoundId;
+
+        // Arrival times of the frames in the decode queue, in the same order; at most queueCapacity are queued
+        private final long[] receivedNanos = new long[queueCapacity + 1];
+        private int receivedHead;
+        private int receivedTail;
+        // Timings of the latest round message; frames carry their own
+        private volatile long roundReceivedNanos;
+        private volatile long roundDecodedNanos;
+
+        private Pipeline() {
+            if (frames) {
+                decoder = getCodecs().getDecoder();
+                binaryDecoder = getCodecs().getBinaryDecoder();
+                framePool = new ArrayBlockingQueue<>(3);
+                for (int i = 0; i < 3; i++) {
+                    framePool.add(new GameRoundFrame());
+                }
+            } else {
+                decoder = null;
+                binaryDecoder = null;
+                framePool = null;
+            }
+            decodeExecutor.execute(this::decodeLoop);
+            decideExecutor.execute(this::decideLoop);
+            sendExecutor.execute(this::sendLoop);
+            decodeExecutor.shutdown();
+            decideExecutor.shutdown();
+            sendExecutor.shutdown();
+        }
+
+        private void close() {
+            decodeQueue.offer(CLOSE_FRAME);
+        }
+
+        private void decodeLoop() {
+            try {
+                while (true) {
+                    Object message = decodeQueue.take();
+                    if (message == CLOSE_FRAME) {
+                        decideQueue.put(CLOSE_ITEM);
+                        return;
+                    }
+                    long received = receivedNanos[receivedTail];
+                    receivedTail = (receivedTail + 1) % receivedNanos.length;
+                    try {
+                        if (message instanceof TextBuffer) {
+                            decode((TextBuffer) message, received);
+                        } else if (message instanceof ByteBuffer) {
+                            decode((ByteBuffer) message, received);
+                        } else {
+                            decode((String) message, received);
+                        }
+                    } catch (InterruptedException ex) {
+                        throw ex;
+                    } catch (Exception ex) {
+                        onError(ex);
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void decode(String messageStr, long received) throws Exception {
+            if (decoder != null) {
+                GameRoundFrame frame = framePool.take();
+                if (decoder.decode(messageStr, frame)) {
+                    enqueueDecoded(frame, received);
+                    return;
+                }
+                framePool.put(frame);
+            }
+            enqueue(getObjectMapper().readValue(messageStr, ServerMessage.class), received);
+        }
+
+        private void decode(TextBuffer text, long received) throws Exception {
+            if (decoder != null) {
+                GameRoundFrame frame = framePool.take();
+                if (decoder.decode(text.getBytes(), frame)) {
+                    enqueueDecoded(frame, received);
+                    return;
+                }
+                framePool.put(frame);
+            }
+            enqueue(readServerMessage(getObjectMapper(), text.getBytes()), received);
+        }
+
+        private void decode(ByteBuffer bytes, long received) throws Exception {
+            if (getBinaryObjectMapper() == null) {
+                throw new IllegalStateException("Received a binary frame but no binary wire format was requested");
+            }
+            if (binaryDecoder != null) {
+                GameRoundFrame frame = framePool.take();
+                if (binaryDecoder.decode(bytes, frame)) {
+                    enqueueDecoded(frame, received);
+                    return;
+                }
+                framePool.put(frame);
+            }
+            enqueue(readServerMessage(getBinaryObjectMapper(), bytes), received);
+        }
+
+        private void enqueueDecoded(GameRoundFrame frame, long received) throws InterruptedException {
+            frame.receivedNanos = received;
+            frame.decodedNanos = recordParse(received);
+            latestRoundId = frame.getRoundId();
+            enqueueRound(frame);
+        }
+
+        private void enqueue(ServerMessage msg, long received) throws InterruptedException {
+            long decoded = recordParse(received);
+            if (msg instanceof GameRoundServerMessage) {
+                roundReceivedNanos = received;
+                roundDecodedNanos = decoded;
+                latestRoundId = ((GameRoundServerMessage) msg).getRoundId();
+                enqueueRound(msg);
+            } else {
+                decideQueue.put(msg);
+            }
+        }
+
+        /**
+         * Replaces any round that is still waiting to be decided by a newer one.
+         */
+        private void enqueueRound(Object round) throws InterruptedException {
+            // Only the decode stage adds to the queue, so a stale round removed here cannot come back
+            for (Iterator<Object> it = decideQueue.iterator(); it.hasNext(); ) {
+                Object queued = it.next();
+                if (queued instanceof GameRoundServerMessage || queued instanceof GameRoundFrame) {
+                    it.remove();
+                    release(queued);
+                    droppedRounds.incrementAndGet();
+                }
+            }
+            decideQueue.put(round);
+        }
+
+        private void release(Object item) throws InterruptedException {
+            if (item instanceof GameRoundFrame) {
+                framePool.put((GameRoundFrame) item);
+            }
+        }
+
+        private void decideLoop() {
+            try {
+                while (true) {
+                    Object item = decideQueue.take();
+                    if (item == CLOSE_ITEM) {
+                        sendQueue.put(CLOSE_SEND);
+                        return;
+                    }
+                    try {
+                        if (item instanceof GameRoundFrame) {
+                            GameRoundFrame frame = (GameRoundFrame) item;
+                            recordDispatch(frame.receivedNanos, frame.decodedNanos);
+                            ((HtfFrameListener) getListener()).onGameRoundFrame(PipelinedHtfClient.this, frame);
+                        } else {
+                            if (item instanceof GameRoundServerMessage) {
+                                recordDispatch(roundReceivedNanos, roundDecodedNanos);
+                            }
+                            dispatch((ServerMessage) item);
+                        }
+                    } catch (Exception ex) {
+                        onError(ex);
+                    } finally {
+                        release(item);
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void sendLoop() {
+            try {
+                while (true) {
+                    SelectActionsClientMessage msg = sendQueue.take();
+                    if (msg == CLOSE_SEND) {
+                        return;
+                    }
+                    UUID latest = latestRoundId;
+                    if (latest != null && !latest.equals(msg.getRoundId())) {
+                        // A newer round arrived while this one was decided, the server no longer accepts the answer
+                        staleAnswers.incrementAndGet();
+                        continue;
+                    }
+                    try {
+                        PipelinedHtfClient.super.send(msg);
+                    } catch (Exception ex) {
+                        onError(ex);
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
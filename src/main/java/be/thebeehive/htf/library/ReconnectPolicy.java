@@ -0,0 +1,80 @@
+package be.thebeehive.htf.library;
+
+/**
+ * How a {@link ReconnectSupervisor} spaces its reconnect attempts: exponential backoff with jitter.
+ * <p>
+ * Attempt n (starting at 0) waits {@code min(maxDelay, initialDelay * multiplier^n)}, of which the jitter
+ * fraction is randomized, so many clients that lost the same server do not reconnect in lockstep.
+ */
+public final class ReconnectPolicy {
+
+    /**
+     * 100 ms, doubling up to 10 s, half of it random, without an attempt limit.
+     */
+    public static final ReconnectPolicy DEFAULT = new ReconnectPolicy(100, 10_000, 2.0, 0.5, Integer.MAX_VALUE);
+
+    private final long initialDelayMillis;
+    private final long maxDelayMillis;
+    private final double multiplier;
+    private final double jitter;
+    private final int maxAttempts;
+
+    /**
+     * @param initialDelayMillis the delay before the first attempt.
+     * @param maxDelayMillis     the maximum delay between attempts.
+     * @param multiplier         the growth of the delay per failed attempt, at least 1.
+     * @param jitter             the randomized fraction of every delay, between 0 and 1.
+     * @param maxAttempts        the number of attempts after which the supervisor gives up.
+     */
+    public ReconnectPolicy(long initialDelayMillis, long maxDelayMillis, double multiplier, double jitter, int maxAttempts) {
+        if (initialDelayMillis < 0 || maxDelayMillis < initialDelayMillis) {
+            throw new IllegalArgumentException("Invalid delays: " + initialDelayMillis + ".." + maxDelayMillis);
+        }
+        if (multiplier < 1) {
+            throw new IllegalArgumentException("multiplier must be at least 1");
+        }
+        if (jitter < 0 || jitter > 1) {
+            throw new IllegalArgumentException("jitter must be between 0 and 1");
+        }
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be at least 1");
+        }
+        this.initialDelayMillis = initialDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.multiplier = multiplier;
+        this.jitter = jitter;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Returns the delay before an attempt.
+     *
+     * @param attempt the number of attempts that failed since the connection was lost.
+     * @param random  a uniformly distributed number in [0, 1).
+     * @return the delay in milliseconds.
+     */
+    public long delayMillis(int attempt, double random) {
+        double delay = Math.min(maxDelayMillis, initialDelayMillis * Math.pow(multiplier, attempt));
+        return Math.round(delay * (1 - jitter) + delay * jitter * random);
+    }
+
+    public long getInitialDelayMillis() {
+        return initialDelayMillis;
+    }
+
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    public double getMultiplier() {
+        return multiplier;
+    }
+
+    public double getJitter() {
+        return jitter;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+}
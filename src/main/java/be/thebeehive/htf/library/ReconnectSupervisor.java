@@ -0,0 +1,97 @@
+package be.thebeehive.htf.library;
+
+import org.java_websocket.framing.CloseFrame;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reconnects {@link HtfClient}s that lost their connection, waiting according to a {@link ReconnectPolicy}.
+ * <p>
+ * A client is reconnected when the connection failed, broke, or was closed after an exception, but not when
+ * the server closed it normally, e.g. after the game ended, or when {@link HtfClient#close()} was called.
+ * Reconnecting reuses the same client: the parsed URI, the handshake headers, the resolved server address and
+ * the listener with its decision engine and arenas all survive, so the client is back in the rounds as soon
+ * as the handshake completes. One supervisor thread serves any number of clients.
+ */
+public final class ReconnectSupervisor implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReconnectSupervisor.class);
+
+    private final ReconnectPolicy policy;
+    private final ScheduledThreadPoolExecutor scheduler = newScheduler();
+
+    public ReconnectSupervisor() {
+        this(ReconnectPolicy.DEFAULT);
+    }
+
+    public ReconnectSupervisor(ReconnectPolicy policy) {
+        this.policy = policy;
+    }
+
+    private static ScheduledThreadPoolExecutor newScheduler() {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, r -> new Thread(r, "htf-reconnect"));
+        // The thread only lives while a reconnect is pending, which keeps the JVM running between two connections
+        scheduler.setKeepAliveTime(1, TimeUnit.SECONDS);
+        scheduler.allowCoreThreadTimeOut(true);
+        return scheduler;
+    }
+
+    /**
+     * Starts supervising a client. Call before the client connects.
+     *
+     * @param client the client to reconnect when its connection is lost.
+     */
+    public void supervise(HtfClient client) {
+        client.supervise(this, new CachingDnsResolver());
+    }
+
+    /**
+     * Schedules a reconnect of a client. Called by the client when its connection is lost.
+     *
+     * @param client  the client.
+     * @param attempt the number of attempts that failed since the connection was lost.
+     * @return false if the client is given up on.
+     */
+    boolean scheduleReconnect(HtfClient client, int attempt) {
+        if (attempt >= policy.getMaxAttempts() || scheduler.isShutdown()) {
+            return false;
+        }
+        long delay = policy.delayMillis(attempt, ThreadLocalRandom.current().nextDouble());
+        LOGGER.info("Reconnecting to {} in {} ms (attempt {})", client.getURI(), delay, attempt + 1);
+        try {
+            scheduler.schedule(() -> reconnect(client), delay, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (RuntimeException ex) {
+            // Closed in between
+            return false;
+        }
+    }
+
+    private void reconnect(HtfClient client) {
+        if (!client.isReconnecting()) {
+            return;
+        }
+        try {
+            client.reconnect();
+        } catch (RuntimeException ex) {
+            LOGGER.warn("Reconnect failed ...", ex);
+            client.connectionLost(CloseFrame.NEVER_CONNECTED);
+        }
+    }
+
+    public ReconnectPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Stops all pending reconnects. Supervised clients are not closed.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,217 @@
+package be.thebeehive.htf.library;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous logger for per-round status lines.
+ * <p>
+ * {@link #log(String, long, Object)} only stores the message pattern and its arguments in a preallocated slot
+ * of a ring buffer; a daemon thread wakes up every few milliseconds and formats and writes everything that
+ * was queued in one batch through slf4j. Logging a round therefore never formats, locks or writes on the
+ * thread that decides the round. When the ring is full the line is dropped instead of waiting, and the
+ * number of dropped lines is logged with the next batch.
+ * <p>
+ * Arguments are formatted later on the log thread, so they must not change after they were logged:
+ * pass immutable values such as BigDecimals or lists that are no longer modified.
+ * Any number of threads can log to one instance.
+ */
+public final class RoundLog implements AutoCloseable {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final long DEFAULT_FLUSH_MILLIS = 10;
+
+    private static final int MAX_ARGUMENTS = 4;
+
+    private final Logger logger;
+    private final Slot[] slots;
+    private final int mask;
+    // seq + 1 once the slot of seq is filled
+    private final AtomicLongArray published;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final long flushNanos;
+    private final Thread thread;
+    // Only written by the log thread
+    private volatile long tail;
+    private volatile boolean closed;
+
+    public RoundLog() {
+        this(LoggerFactory.getLogger(RoundLog.class), DEFAULT_CAPACITY, DEFAULT_FLUSH_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param logger     the logger the lines are written to, at INFO level.
+     * @param capacity   the number of lines that can be queued, rounded up to a power of two.
+     * @param flushDelay how long the log thread sleeps when the ring is empty.
+     * @param unit       the unit of flushDelay.
+     */
+    public RoundLog(Logger logger, int capacity, long flushDelay, TimeUnit unit) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.logger = logger;
+        this.slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            this.slots[i] = new Slot();
+        }
+        this.mask = size - 1;
+        this.published = new AtomicLongArray(size);
+        this.flushNanos = unit.toNanos(flushDelay);
+        this.thread = new Thread(this::drainLoop, "htf-round-log");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * @return the instance shared by all clients that do not bring their own, flushed when the JVM exits.
+     */
+    public static RoundLog getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * Queues a line with one argument after value, e.g. {@code log("Selected {} actions: {}", size, ids)}.
+     *
+     * @param pattern the slf4j message pattern, value is its first placeholder.
+     * @param value   the first argument, kept unboxed until the line is formatted.
+     * @param arg     the second argument.
+     * @return false if the line was dropped because the ring is full, or the log is closed.
+     */
+    public boolean log(String pattern, long value, Object arg) {
+        Slot slot = claim();
+        if (slot == null) {
+            return false;
+        }
+        slot.args[0] = arg;
+        return publish(slot, pattern, value, 1);
+    }
+
+    /**
+     * Queues a line with four arguments after value.
+     *
+     * @return false if the line was dropped because the ring is full, or the log is closed.
+     * @see #log(String, long, Object)
+     */
+    public boolean log(String pattern, long value, Object arg1, Object arg2, Object arg3, Object arg4) {
+        Slot slot = claim();
+        if (slot == null) {
+            return false;
+        }
+        slot.args[0] = arg1;
+        slot.args[1] = arg2;
+        slot.args[2] = arg3;
+        slot.args[3] = arg4;
+        return publish(slot, pattern, value, 4);
+    }
+
+    /**
+     * @return the number of lines dropped since this log was created.
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Writes the queued lines and stops the log thread. Lines logged afterwards are dropped.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Slot claim() {
+        if (closed || !logger.isInfoEnabled()) {
+            return null;
+        }
+        long seq;
+        do {
+            seq = head.get();
+            if (seq - tail >= slots.length) {
+                dropped.incrementAndGet();
+                return null;
+            }
+        } while (!head.compareAndSet(seq, seq + 1));
+        Slot slot = slots[(int) seq & mask];
+        slot.seq = seq;
+        return slot;
+    }
+
+    private boolean publish(Slot slot, String pattern, long value, int argCount) {
+        slot.pattern = pattern;
+        slot.value = value;
+        slot.argCount = argCount;
+        published.lazySet((int) slot.seq & mask, slot.seq + 1);
+        return true;
+    }
+
+    private void drainLoop() {
+        long reportedDrops = 0;
+        while (true) {
+            // Read closed first, so every line published before close() is written
+            boolean last = closed;
+            long seq = tail;
+            while (published.get((int) seq & mask) == seq + 1) {
+                write(slots[(int) seq & mask]);
+                tail = ++seq;
+            }
+            long drops = dropped.get();
+            if (drops != reportedDrops) {
+                logger.warn("Dropped {} round log lines", drops - reportedDrops);
+                reportedDrops = drops;
+            }
+            if (last) {
+                return;
+            }
+            LockSupport.parkNanos(this, flushNanos);
+        }
+    }
+
+    private void write(Slot slot) {
+        String pattern = slot.pattern;
+        Object[] arguments = new Object[slot.argCount + 1];
+        arguments[0] = slot.value;
+        System.arraycopy(slot.args, 0, arguments, 1, slot.argCount);
+        // Do not keep the arguments alive until the slot is reused
+        Arrays.fill(slot.args, null);
+        slot.pattern = null;
+        try {
+            logger.info(pattern, arguments);
+        } catch (RuntimeException e) {
+            // Never let a bad argument kill the log thread
+        }
+    }
+
+    private static final class Slot {
+        final Object[] args = new Object[MAX_ARGUMENTS];
+        long seq;
+        String pattern;
+        long value;
+        int argCount;
+    }
+
+    private static final class DefaultHolder {
+        static final RoundLog INSTANCE = new RoundLog();
+
+        static {
+            // The log thread is a daemon, write what is still queued when the JVM exits
+            Runtime.getRuntime().addShutdownHook(new Thread(INSTANCE::close, "htf-round-log-flush"));
+        }
+    }
+}
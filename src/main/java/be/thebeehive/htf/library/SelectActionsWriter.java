@@ -0,0 +1,166 @@
+package be.thebeehive.htf.library;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Writes the JSON of a {@link be.thebeehive.htf.library.protocol.client.SelectActionsClientMessage} straight into
+ * a reusable byte buffer.
+ * <p>
+ * The output is byte for byte what {@code ObjectMapper.writeValueAsString} produces:
+ * {@code {"_type":"SelectActionsClientMessage","roundId":"...","actionIds":[...]}}. The buffer only grows, so
+ * once it fits the largest answer, writing does not allocate. A writer is not thread-safe.
+ */
+public final class SelectActionsWriter {
+
+    private static final byte[] PREFIX = "{\"_type\":\"SelectActionsClientMessage\",\"roundId\":"
+            .getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ACTION_IDS = ",\"actionIds\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] MIN_LONG = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    // A UUID in quotes, at most 20 characters per id plus a comma, and the closing brackets
+    private static final int FIXED_SIZE = PREFIX.length + 38 + ACTION_IDS.length + 3;
+
+    private byte[] buffer = new byte[256];
+    private ByteBuffer view = ByteBuffer.wrap(buffer);
+    private int length;
+
+    /**
+     * Writes a message.
+     *
+     * @param roundId   the round id, may be null.
+     * @param actionIds the selected action ids, may be null.
+     * @return the message, valid until the next write.
+     */
+    public ByteBuffer write(UUID roundId, List<Long> actionIds) {
+        int count = actionIds == null ? 0 : actionIds.size();
+        start(roundId != null, roundId == null ? 0 : roundId.getMostSignificantBits(),
+                roundId == null ? 0 : roundId.getLeastSignificantBits(), count);
+        if (actionIds == null) {
+            put(NULL);
+        } else {
+            buffer[length++] = '[';
+            for (int i = 0; i < count; i++) {
+                if (i > 0) {
+                    buffer[length++] = ',';
+                }
+                Long id = actionIds.get(i);
+                if (id == null) {
+                    put(NULL);
+                } else {
+                    putLong(id);
+                }
+            }
+            buffer[length++] = ']';
+        }
+        buffer[length++] = '}';
+        return view();
+    }
+
+    /**
+     * Writes a message from primitives.
+     *
+     * @param roundIdMostSigBits  the most significant bits of the round id.
+     * @param roundIdLeastSigBits the least significant bits of the round id.
+     * @param actionIds           the selected action ids.
+     * @param count               the number of action ids to write.
+     * @return the message, valid until the next write.
+     */
+    public ByteBuffer write(long roundIdMostSigBits, long roundIdLeastSigBits, long[] actionIds, int count) {
+        start(true, roundIdMostSigBits, roundIdLeastSigBits, count);
+        buffer[length++] = '[';
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                buffer[length++] = ',';
+            }
+            putLong(actionIds[i]);
+        }
+        buffer[length++] = ']';
+        buffer[length++] = '}';
+        return view();
+    }
+
+    /**
+     * @return the bytes of the last message; only the first {@link #length()} are valid.
+     */
+    public byte[] array() {
+        return buffer;
+    }
+
+    /**
+     * @return the length of the last message.
+     */
+    public int length() {
+        return length;
+    }
+
+    private ByteBuffer view() {
+        // Through Buffer, so the class still links on Java 8 where limit and position are not covariant
+        ((Buffer) view).limit(length).position(0);
+        return view;
+    }
+
+    private void start(boolean hasRoundId, long most, long least, int count) {
+        int capacity = FIXED_SIZE + count * 21;
+        if (buffer.length < capacity) {
+            buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+            view = ByteBuffer.wrap(buffer);
+        }
+        length = 0;
+        put(PREFIX);
+        if (hasRoundId) {
+            buffer[length++] = '"';
+            putHex(most >>> 32, 8);
+            buffer[length++] = '-';
+            putHex(most >>> 16, 4);
+            buffer[length++] = '-';
+            putHex(most, 4);
+            buffer[length++] = '-';
+            putHex(least >>> 48, 4);
+            buffer[length++] = '-';
+            putHex(least, 12);
+            buffer[length++] = '"';
+        } else {
+            put(NULL);
+        }
+        put(ACTION_IDS);
+    }
+
+    private void put(byte[] bytes) {
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+    }
+
+    private void putHex(long value, int digits) {
+        for (int i = digits - 1; i >= 0; i--) {
+            buffer[length + i] = HEX[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+        length += digits;
+    }
+
+    private void putLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            put(MIN_LONG);
+            return;
+        }
+        if (value < 0) {
+            buffer[length++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        for (int i = length + digits - 1; i >= length; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        length += digits;
+    }
+}
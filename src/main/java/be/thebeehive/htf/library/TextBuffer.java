@@ -0,0 +1,24 @@
+package be.thebeehive.htf.library;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The UTF-8 payload of a text frame, as received from the socket.
+ * <p>
+ * Wraps the buffer so text can be told apart from binary frames, which arrive as a plain {@link ByteBuffer}.
+ */
+public final class TextBuffer {
+
+    private final ByteBuffer bytes;
+
+    public TextBuffer(ByteBuffer bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * @return the payload; its remaining bytes are the UTF-8 encoded message.
+     */
+    public ByteBuffer getBytes() {
+        return bytes;
+    }
+}
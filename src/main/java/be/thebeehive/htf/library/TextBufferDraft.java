@@ -0,0 +1,47 @@
+package be.thebeehive.htf.library;
+
+import org.java_websocket.WebSocketImpl;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.enums.Opcode;
+import org.java_websocket.exceptions.InvalidDataException;
+import org.java_websocket.framing.Framedata;
+
+/**
+ * RFC 6455 draft that hands complete text frames to {@link HtfClient#onMessage(TextBuffer)} as their raw UTF-8
+ * payload, instead of decoding them into a String first.
+ * <p>
+ * Fragmented messages and every other opcode take the regular {@link Draft_6455} path. UTF-8 is not validated
+ * up front; the JSON parser rejects malformed input while it reads the payload.
+ */
+final class TextBufferDraft extends Draft_6455 {
+
+    // True while a fragmented message is being received, which Draft_6455 keeps to itself
+    private boolean fragmented;
+
+    @Override
+    public void processFrame(WebSocketImpl webSocketImpl, Framedata frame) throws InvalidDataException {
+        Opcode opcode = frame.getOpcode();
+        if (opcode == Opcode.TEXT && frame.isFin() && !fragmented
+                && webSocketImpl.getWebSocketListener() instanceof HtfClient) {
+            HtfClient client = (HtfClient) webSocketImpl.getWebSocketListener();
+            try {
+                client.onMessage(new TextBuffer(frame.getPayloadData()));
+            } catch (RuntimeException ex) {
+                client.onWebsocketError(webSocketImpl, ex);
+            }
+            return;
+        }
+        if (opcode == Opcode.TEXT || opcode == Opcode.BINARY) {
+            fragmented = !frame.isFin();
+        } else if (opcode == Opcode.CONTINUOUS && frame.isFin()) {
+            fragmented = false;
+        }
+        super.processFrame(webSocketImpl, frame);
+    }
+
+    @Override
+    public Draft copyInstance() {
+        return new TextBufferDraft();
+    }
+}
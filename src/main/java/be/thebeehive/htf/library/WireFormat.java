@@ -0,0 +1,74 @@
+package be.thebeehive.htf.library;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Enum representing the encodings of protocol messages on the WebSocket.
+ * <p>
+ * JSON: text frames, always understood by the server.
+ * SMILE: binary frames in Jackson's Smile format, which shares repeated field names.
+ * CBOR: binary frames in the CBOR format (RFC 8949).
+ * <p>
+ * A binary format is requested with the {@link #HEADER} handshake header and is only used when the server
+ * echoes it in its handshake response; otherwise both sides keep talking JSON.
+ */
+public enum WireFormat {
+
+    JSON,
+    SMILE,
+    CBOR;
+
+    /**
+     * Handshake header that requests, and in the response confirms, a wire format.
+     */
+    public static final String HEADER = "wireFormat";
+
+    /**
+     * @return true if messages in this format are sent as binary frames.
+     */
+    public boolean isBinary() {
+        return this != JSON;
+    }
+
+    /**
+     * @return a new factory for parsers and generators of this format.
+     */
+    public JsonFactory newFactory() {
+        switch (this) {
+            case SMILE:
+                return new SmileFactory();
+            case CBOR:
+                return new CBORFactory();
+            default:
+                return new JsonFactory();
+        }
+    }
+
+    /**
+     * @return a new ObjectMapper that reads and writes this format.
+     */
+    public ObjectMapper newObjectMapper() {
+        return new ObjectMapper(newFactory());
+    }
+
+    /**
+     * Parses a handshake header value.
+     *
+     * @param value the header value, may be null.
+     * @return the format, or null if the value is missing or unknown.
+     */
+    public static WireFormat fromHeader(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        for (WireFormat format : values()) {
+            if (format.name().equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,100 @@
+package be.thebeehive.htf.simulation;
+
+import be.thebeehive.htf.client.ActionPlanner;
+import be.thebeehive.htf.client.DecisionEngine;
+import be.thebeehive.htf.library.EnvironmentType;
+import be.thebeehive.htf.library.HtfClient;
+import be.thebeehive.htf.library.HtfClientListener;
+import be.thebeehive.htf.library.WireFormat;
+import be.thebeehive.htf.library.protocol.client.SelectActionsClientMessage;
+import be.thebeehive.htf.library.protocol.server.ErrorServerMessage;
+import be.thebeehive.htf.library.protocol.server.GameEndedServerMessage;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+import be.thebeehive.htf.library.protocol.server.WarningServerMessage;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class LoadTestMain {
+
+    /**
+     * Starts a {@link LocalGameServer} and lets many clients play against it over real WebSocket connections,
+     * then prints the combined {@link ReplayReport} with the server-side round-trip latencies.
+     * <p>
+     * Usage: {@code LoadTestMain [clients] [rounds] [seed] [JSON|SMILE|CBOR]}
+     */
+    public static void main(String[] args) throws Exception {
+        int clients = args.length >= 1 ? Integer.parseInt(args[0]) : 16;
+        int rounds = args.length >= 2 ? Integer.parseInt(args[1]) : 1_000;
+        long seed = args.length >= 3 ? Long.parseLong(args[2]) : 42L;
+        WireFormat wireFormat = args.length >= 4 ? WireFormat.valueOf(args[3]) : WireFormat.JSON;
+
+        LocalGameServer server = new LocalGameServer(new InetSocketAddress("localhost", 0), seed, rounds, 5);
+        server.start();
+        while (server.getPort() == 0) {
+            Thread.sleep(10);
+        }
+
+        List<HtfClient> htfClients = new ArrayList<>(clients);
+        long start = System.nanoTime();
+        for (int i = 0; i < clients; i++) {
+            HtfClient client = new HtfClient(
+                    "ws://localhost:" + server.getPort(),
+                    "load-test-" + i,
+                    EnvironmentType.SIMULATION,
+                    new PlannerListener(new DecisionEngine(), 5),
+                    wireFormat
+            );
+            client.connect();
+            htfClients.add(client);
+        }
+
+        boolean finished = server.awaitGames(clients, 10, TimeUnit.MINUTES);
+        long elapsed = System.nanoTime() - start;
+        System.out.println(ReplayReport.merge(server.getReports(), elapsed));
+        if (!finished) {
+            System.out.println("Timed out: " + server.getReports().size() + "/" + clients + " games finished");
+        }
+
+        for (HtfClient client : htfClients) {
+            client.close();
+        }
+        server.stop();
+    }
+
+    /**
+     * Answers every round with the actions of a planner, without logging.
+     */
+    private static class PlannerListener implements HtfClientListener {
+
+        private final ActionPlanner planner;
+        private final int maxActions;
+
+        private PlannerListener(ActionPlanner planner, int maxActions) {
+            this.planner = planner;
+            this.maxActions = maxActions;
+        }
+
+        @Override
+        public void onErrorServerMessage(HtfClient client, ErrorServerMessage msg) {
+            System.err.println("ERROR: " + msg.getMsg());
+        }
+
+        @Override
+        public void onGameEndedServerMessage(HtfClient client, GameEndedServerMessage msg) {
+
+        }
+
+        @Override
+        public void onGameRoundServerMessage(HtfClient client, GameRoundServerMessage msg) {
+            client.send(new SelectActionsClientMessage(msg.getRoundId(), planner.decideActions(msg, maxActions)));
+        }
+
+        @Override
+        public void onWarningServerMessage(HtfClient client, WarningServerMessage msg) {
+            System.out.println("WARNING: " + msg.getMsg());
+        }
+    }
+}
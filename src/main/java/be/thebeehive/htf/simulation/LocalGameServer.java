@@ -0,0 +1,324 @@
+package be.thebeehive.htf.simulation;
+
+import be.thebeehive.htf.client.ClientUtils;
+import be.thebeehive.htf.client.FixedValues;
+import be.thebeehive.htf.library.WireFormat;
+import be.thebeehive.htf.library.protocol.client.ClientMessage;
+import be.thebeehive.htf.library.protocol.client.SelectActionsClientMessage;
+import be.thebeehive.htf.library.protocol.server.GameEndedServerMessage;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Action;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Effect;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Values;
+import be.thebeehive.htf.library.protocol.server.ServerMessage;
+import be.thebeehive.htf.library.protocol.server.WarningServerMessage;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import org.java_websocket.WebSocket;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.exceptions.InvalidDataException;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.handshake.ServerHandshakeBuilder;
+import org.java_websocket.server.WebSocketServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process stand-in for the game server, for end-to-end tests without {@code wss://htf.b9s.dev/ws}.
+ * <p>
+ * Every connection plays its own game of {@link RoundGenerator} rounds and gets the next round as soon as it
+ * answers the previous one. Answers are applied with {@link ClientUtils#sumValues(Values, Values)}: the chosen
+ * actions one step at a time, each followed by the effects of that step unless an earlier action blocked them.
+ * A game ends with a {@link GameEndedServerMessage} when the submarine dies or after the configured number of
+ * rounds; its {@link ReplayReport} then becomes available through {@link #getReports()}, with the server-side
+ * round-trip time of every round as latency.
+ * <p>
+ * A client that requests a binary {@link WireFormat} in its handshake gets it confirmed and then exchanges
+ * binary frames in that format.
+ */
+public final class LocalGameServer extends WebSocketServer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LocalGameServer.class);
+
+    private final long seed;
+    private final int rounds;
+    private final int maxActions;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectWriter serverWriter = objectMapper.writerFor(ServerMessage.class);
+    private final Map<WireFormat, ObjectMapper> binaryMappers = new EnumMap<>(WireFormat.class);
+    private final AtomicInteger games = new AtomicInteger();
+    private final List<ReplayReport> reports = new ArrayList<>();
+
+    /**
+     * @param address    the address to listen on; port 0 picks a free port, see {@link #getPort()}.
+     * @param seed       the seed of the first game; every next game adds one.
+     * @param rounds     the number of rounds per game.
+     * @param maxActions the number of actions a client may select per round.
+     */
+    public LocalGameServer(InetSocketAddress address, long seed, int rounds, int maxActions) {
+        super(address);
+        this.seed = seed;
+        this.rounds = rounds;
+        this.maxActions = maxActions;
+        for (WireFormat format : WireFormat.values()) {
+            if (format.isBinary()) {
+                binaryMappers.put(format, format.newObjectMapper());
+            }
+        }
+        setReuseAddr(true);
+    }
+
+    /**
+     * Accepts every requested {@link WireFormat} by echoing its header.
+     */
+    @Override
+    public ServerHandshakeBuilder onWebsocketHandshakeReceivedAsServer(WebSocket conn, Draft draft, ClientHandshake request)
+            throws InvalidDataException {
+        ServerHandshakeBuilder response = super.onWebsocketHandshakeReceivedAsServer(conn, draft, request);
+        WireFormat format = WireFormat.fromHeader(request.getFieldValue(WireFormat.HEADER));
+        if (format != null && format.isBinary()) {
+            response.put(WireFormat.HEADER, format.name());
+        }
+        return response;
+    }
+
+    @Override
+    public void onOpen(WebSocket conn, ClientHandshake handshake) {
+        WireFormat format = WireFormat.fromHeader(handshake.getFieldValue(WireFormat.HEADER));
+        Game game = new Game(new RoundGenerator(seed + games.getAndIncrement()), format == null ? WireFormat.JSON : format);
+        conn.setAttachment(game);
+        nextRound(conn, game);
+    }
+
+    @Override
+    public void onMessage(WebSocket conn, String message) {
+        Game game = conn.getAttachment();
+        if (game == null || game.round == null) {
+            return;
+        }
+        long latency = System.nanoTime() - game.sentAt;
+        try {
+            handle(conn, game, objectMapper.readValue(message, ClientMessage.class), latency);
+        } catch (JsonProcessingException ex) {
+            warn(conn, "Invalid message: " + ex.getOriginalMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(WebSocket conn, ByteBuffer message) {
+        Game game = conn.getAttachment();
+        if (game == null || game.round == null) {
+            return;
+        }
+        long latency = System.nanoTime() - game.sentAt;
+        if (!game.format.isBinary()) {
+            warn(conn, "Binary frames require a binary " + WireFormat.HEADER);
+            return;
+        }
+        try {
+            ObjectMapper mapper = binaryMappers.get(game.format);
+            handle(conn, game, mapper.readValue(new ByteBufferBackedInputStream(message), ClientMessage.class), latency);
+        } catch (IOException ex) {
+            warn(conn, "Invalid message: " + ex.getMessage());
+        }
+    }
+
+    private void handle(WebSocket conn, Game game, ClientMessage msg, long latency) {
+        if (!(msg instanceof SelectActionsClientMessage)) {
+            return;
+        }
+        SelectActionsClientMessage select = (SelectActionsClientMessage) msg;
+        if (!game.round.getRoundId().equals(select.getRoundId())) {
+            warn(conn, "Unknown round " + select.getRoundId());
+            return;
+        }
+        List<Long> actionIds = select.getActionIds() == null ? new ArrayList<Long>() : select.getActionIds();
+        if (actionIds.size() > maxActions) {
+            warn(conn, "Too many actions selected, the maximum is " + maxActions);
+            actionIds = actionIds.subList(0, maxActions);
+        }
+
+        game.latencies[game.played++] = latency;
+        game.alive = apply(conn, game, actionIds);
+        if (game.alive) {
+            game.survived++;
+        }
+        if (!game.alive || game.played == rounds) {
+            endGame(conn, game);
+        } else {
+            nextRound(conn, game);
+        }
+    }
+
+    /**
+     * Plays the selected actions of the current round and stores the resulting values in the game.
+     *
+     * @return true if the submarine is alive after every step.
+     */
+    private boolean apply(WebSocket conn, Game game, List<Long> actionIds) {
+        GameRoundServerMessage round = game.round;
+        Map<Long, Action> actionsById = new HashMap<>();
+        for (Action action : round.getActions()) {
+            actionsById.put(action.getId(), action);
+        }
+        List<Action> plan = new ArrayList<>(actionIds.size());
+        for (Long id : actionIds) {
+            Action action = actionsById.get(id);
+            if (action == null) {
+                warn(conn, "Unknown action " + id);
+            } else {
+                plan.add(action);
+            }
+        }
+
+        int maxStep = plan.size();
+        for (Effect effect : round.getEffects()) {
+            maxStep = Math.max(maxStep, effect.getStep());
+        }
+        Set<Long> blocked = new HashSet<>();
+        Values values = round.getOurSubmarine().getValues();
+        boolean alive = ClientUtils.isAlive(values);
+        for (int step = 1; step <= maxStep; step++) {
+            if (step <= plan.size()) {
+                Action action = plan.get(step - 1);
+                values = ClientUtils.sumValues(values, action.getValues());
+                alive &= ClientUtils.isAlive(values);
+                blocked.add(action.getEffectId());
+            }
+            for (Effect effect : round.getEffects()) {
+                if (effect.getStep() == step && !blocked.contains(effect.getId())) {
+                    values = ClientUtils.sumValues(values, effect.getValues());
+                    alive &= ClientUtils.isAlive(values);
+                }
+            }
+        }
+        game.values = values;
+        return alive;
+    }
+
+    private void nextRound(WebSocket conn, Game game) {
+        game.round = game.generator.next(game.played + 1, game.values);
+        game.sentAt = System.nanoTime();
+        send(conn, game.round);
+    }
+
+    private void endGame(WebSocket conn, Game game) {
+        GameEndedServerMessage msg = new GameEndedServerMessage();
+        msg.setRound(game.round.getRound());
+        long deathRound = game.alive ? -1 : game.round.getRound();
+        game.round = null;
+        send(conn, msg);
+        conn.close();
+
+        ReplayReport report = new ReplayReport(game.played, System.nanoTime() - game.startedAt, game.latencies,
+                game.survived, deathRound, 0, 0, FixedValues.of(game.values));
+        synchronized (reports) {
+            reports.add(report);
+            reports.notifyAll();
+        }
+    }
+
+    private void warn(WebSocket conn, String text) {
+        WarningServerMessage msg = new WarningServerMessage();
+        msg.setMsg(text);
+        send(conn, msg);
+    }
+
+    private void send(WebSocket conn, ServerMessage msg) {
+        Game game = conn.getAttachment();
+        try {
+            if (game != null && game.format.isBinary()) {
+                conn.send(binaryMappers.get(game.format).writerFor(ServerMessage.class).writeValueAsBytes(msg));
+            } else {
+                conn.send(serverWriter.writeValueAsString(msg));
+            }
+        } catch (JsonProcessingException ex) {
+            onError(conn, ex);
+        }
+    }
+
+    @Override
+    public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+
+    }
+
+    @Override
+    public void onError(WebSocket conn, Exception ex) {
+        LOGGER.warn("Exception occurred ...", ex);
+    }
+
+    @Override
+    public void onStart() {
+        LOGGER.info("Local game server listening on port {}", getPort());
+    }
+
+    /**
+     * @return the reports of all finished games, in the order they finished.
+     */
+    public List<ReplayReport> getReports() {
+        synchronized (reports) {
+            return new ArrayList<>(reports);
+        }
+    }
+
+    /**
+     * Waits until the given number of games finished.
+     *
+     * @param count   the number of games.
+     * @param timeout the maximum time to wait.
+     * @param unit    the unit of timeout.
+     * @return true if the games finished in time.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public boolean awaitGames(int count, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (reports) {
+            while (reports.size() < count) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(reports, remaining);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * State of the game on one connection. Only touched by that connection's worker thread.
+     */
+    private final class Game {
+
+        private final RoundGenerator generator;
+        private final WireFormat format;
+        private final long startedAt = System.nanoTime();
+        private final long[] latencies = new long[rounds];
+        private Values values;
+        private GameRoundServerMessage round;
+        private long sentAt;
+        private int played;
+        private int survived;
+        private boolean alive = true;
+
+        private Game(RoundGenerator generator, WireFormat format) {
+            this.generator = generator;
+            this.format = format;
+            this.values = generator.startValues();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package be.thebeehive.htf.simulation;
+
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+import be.thebeehive.htf.library.protocol.server.ServerMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads and writes recorded rounds: one server message as JSON per line, exactly as received over the socket.
+ */
+public final class RecordedRounds {
+
+    private RecordedRounds() {
+
+    }
+
+    /**
+     * Reads the game rounds of a recording. Blank lines and other server messages are skipped.
+     *
+     * @param file the recording.
+     * @return the rounds, in recorded order.
+     * @throws IOException if the file cannot be read or a line is not a server message.
+     */
+    public static List<GameRoundServerMessage> read(Path file) throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        List<GameRoundServerMessage> rounds = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                ServerMessage msg = objectMapper.readValue(line, ServerMessage.class);
+                if (msg instanceof GameRoundServerMessage) {
+                    rounds.add((GameRoundServerMessage) msg);
+                }
+            }
+        }
+        return rounds;
+    }
+
+    /**
+     * Writes rounds as a recording that {@link #read(Path)} can replay.
+     *
+     * @param file   the recording, replaced if it exists.
+     * @param rounds the rounds.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void write(Path file, List<GameRoundServerMessage> rounds) throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (GameRoundServerMessage round : rounds) {
+                writer.write(objectMapper.writerFor(ServerMessage.class).writeValueAsString(round));
+                writer.newLine();
+            }
+        }
+    }
+}
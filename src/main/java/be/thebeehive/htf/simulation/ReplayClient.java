@@ -0,0 +1,68 @@
+package be.thebeehive.htf.simulation;
+
+import be.thebeehive.htf.library.EnvironmentType;
+import be.thebeehive.htf.library.HtfClient;
+import be.thebeehive.htf.library.HtfClientListener;
+import be.thebeehive.htf.library.protocol.client.SelectActionsClientMessage;
+
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * An {@link HtfClient} that never connects: messages sent by the listener are kept for the {@link ReplayRunner}.
+ */
+class ReplayClient extends HtfClient {
+
+    private SelectActionsClientMessage lastSent;
+    private Exception lastError;
+
+    ReplayClient(HtfClientListener listener) throws URISyntaxException {
+        super("ws://localhost/replay", "replay", EnvironmentType.SIMULATION, listener);
+    }
+
+    @Override
+    public void send(SelectActionsClientMessage msg) {
+        this.lastSent = msg;
+    }
+
+    @Override
+    public void sendActions(long roundIdMostSigBits, long roundIdLeastSigBits, long[] actionIds, int count) {
+        List<Long> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(actionIds[i]);
+        }
+        this.lastSent = new SelectActionsClientMessage(new UUID(roundIdMostSigBits, roundIdLeastSigBits), ids);
+    }
+
+    @Override
+    public void onError(Exception ex) {
+        this.lastError = ex;
+    }
+
+    /**
+     * @return true if a message was sent since the last {@link #takeSent()}.
+     */
+    boolean hasSent() {
+        return lastSent != null;
+    }
+
+    /**
+     * @return the message sent since the last call, or null.
+     */
+    SelectActionsClientMessage takeSent() {
+        SelectActionsClientMessage msg = lastSent;
+        lastSent = null;
+        return msg;
+    }
+
+    /**
+     * @return the error reported since the last call, or null.
+     */
+    Exception takeError() {
+        Exception ex = lastError;
+        lastError = null;
+        return ex;
+    }
+}
@@ -0,0 +1,28 @@
+package be.thebeehive.htf.simulation;
+
+import be.thebeehive.htf.client.MyClient;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+public class ReplayMain {
+
+    /**
+     * Plays the client offline and prints a {@link ReplayReport}.
+     * <p>
+     * Usage: {@code ReplayMain [rounds] [seed]} plays a generated game,
+     * {@code ReplayMain --file <recording.jsonl>} replays a recording made with {@link RecordedRounds}.
+     */
+    public static void main(String[] args) throws IOException {
+        ReplayRunner runner = new ReplayRunner(new MyClient());
+        ReplayReport report;
+        if (args.length >= 2 && "--file".equals(args[0])) {
+            report = runner.replay(RecordedRounds.read(Paths.get(args[1])));
+        } else {
+            int rounds = args.length >= 1 ? Integer.parseInt(args[0]) : 1_000;
+            long seed = args.length >= 2 ? Long.parseLong(args[1]) : 42L;
+            report = runner.play(new RoundGenerator(seed), rounds);
+        }
+        System.out.println(report);
+    }
+}
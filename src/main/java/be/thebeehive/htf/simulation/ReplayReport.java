@@ -0,0 +1,149 @@
+package be.thebeehive.htf.simulation;
+
+import be.thebeehive.htf.client.FixedValues;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcome of a {@link ReplayRunner} run: throughput, decision latency and survival.
+ */
+public class ReplayReport {
+
+    private final int rounds;
+    private final long elapsedNanos;
+    private final long[] sortedLatencies;
+    private final int survivedRounds;
+    private final long deathRound;
+    private final int unanswered;
+    private final int errors;
+    private final FixedValues finalValues;
+
+    ReplayReport(int rounds, long elapsedNanos, long[] latencies, int survivedRounds, long deathRound,
+                 int unanswered, int errors, FixedValues finalValues) {
+        this.rounds = rounds;
+        this.elapsedNanos = elapsedNanos;
+        this.sortedLatencies = Arrays.copyOf(latencies, rounds);
+        Arrays.sort(this.sortedLatencies);
+        this.survivedRounds = survivedRounds;
+        this.deathRound = deathRound;
+        this.unanswered = unanswered;
+        this.errors = errors;
+        this.finalValues = finalValues;
+    }
+
+    /**
+     * Combines the reports of games played at the same time into one report of all their rounds.
+     * The combined report has no final values and its death round is the earliest one of the games.
+     *
+     * @param reports      the reports to combine.
+     * @param elapsedNanos the wall-clock time it took to play all games.
+     * @return the combined report.
+     */
+    public static ReplayReport merge(List<ReplayReport> reports, long elapsedNanos) {
+        int rounds = 0;
+        for (ReplayReport report : reports) {
+            rounds += report.rounds;
+        }
+        long[] latencies = new long[rounds];
+        int offset = 0;
+        int survived = 0;
+        long deathRound = -1;
+        int unanswered = 0;
+        int errors = 0;
+        for (ReplayReport report : reports) {
+            System.arraycopy(report.sortedLatencies, 0, latencies, offset, report.rounds);
+            offset += report.rounds;
+            survived += report.survivedRounds;
+            if (report.deathRound >= 0 && (deathRound < 0 || report.deathRound < deathRound)) {
+                deathRound = report.deathRound;
+            }
+            unanswered += report.unanswered;
+            errors += report.errors;
+        }
+        return new ReplayReport(rounds, elapsedNanos, latencies, survived, deathRound, unanswered, errors, null);
+    }
+
+    /**
+     * @return the number of rounds fed to the listener.
+     */
+    public int getRounds() {
+        return rounds;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getRoundsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rounds * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    /**
+     * Returns a latency percentile of the listener's round handling (nearest rank).
+     *
+     * @param percentile the percentile, between 0 and 100.
+     * @return the latency in nanoseconds, or 0 when no round was played.
+     */
+    public long getLatencyPercentile(double percentile) {
+        if (sortedLatencies.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100 * sortedLatencies.length);
+        return sortedLatencies[Math.max(0, Math.min(sortedLatencies.length - 1, rank - 1))];
+    }
+
+    /**
+     * @return the number of rounds after which our submarine was still alive.
+     */
+    public int getSurvivedRounds() {
+        return survivedRounds;
+    }
+
+    /**
+     * @return the round our submarine died in, or -1 if it survived.
+     */
+    public long getDeathRound() {
+        return deathRound;
+    }
+
+    public boolean isSurvived() {
+        return deathRound < 0;
+    }
+
+    /**
+     * @return the number of rounds the listener did not answer.
+     */
+    public int getUnanswered() {
+        return unanswered;
+    }
+
+    /**
+     * @return the number of rounds in which the listener failed.
+     */
+    public int getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return the values of our submarine after the last round, or null for a merged report.
+     */
+    public FixedValues getFinalValues() {
+        return finalValues;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "%d rounds in %.1f ms (%.0f rounds/s)%n"
+                        + "Latency: p50 %.1f us, p90 %.1f us, p99 %.1f us, max %.1f us%n"
+                        + "Survived %d/%d rounds%s, unanswered %d, errors %d%s",
+                rounds, elapsedNanos / 1e6, getRoundsPerSecond(),
+                getLatencyPercentile(50) / 1e3, getLatencyPercentile(90) / 1e3,
+                getLatencyPercentile(99) / 1e3, getLatencyPercentile(100) / 1e3,
+                survivedRounds, rounds, isSurvived() ? "" : " (died in round " + deathRound + ")",
+                unanswered, errors,
+                finalValues == null ? "" : String.format("%nFinal: %s", finalValues));
+    }
+}
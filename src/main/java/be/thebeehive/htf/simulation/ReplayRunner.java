@@ -0,0 +1,162 @@
+package be.thebeehive.htf.simulation;
+
+import be.thebeehive.htf.client.FixedValues;
+import be.thebeehive.htf.client.RoundModel;
+import be.thebeehive.htf.library.HtfClientListener;
+import be.thebeehive.htf.library.protocol.client.SelectActionsClientMessage;
+import be.thebeehive.htf.library.protocol.server.GameEndedServerMessage;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Values;
+
+import java.net.URISyntaxException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Feeds rounds to an {@link HtfClientListener} without a server, as fast as the listener answers.
+ * <p>
+ * Every answer is applied to the round with the game rules of {@link RoundModel}: the chosen actions one step
+ * at a time, each followed by the effects of that step unless an earlier action blocked them. A round that was
+ * not answered is played without actions.
+ */
+public class ReplayRunner {
+
+    private final HtfClientListener listener;
+    private final ReplayClient client;
+    private final RoundModel model = new RoundModel();
+    private final FixedValues outcome = new FixedValues();
+    private int[] plan = new int[16];
+
+    public ReplayRunner(HtfClientListener listener) {
+        this.listener = listener;
+        try {
+            this.client = new ReplayClient(listener);
+        } catch (URISyntaxException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Replays recorded rounds. Every round is played from its own recorded values, so a death in one round
+     * does not end the replay.
+     *
+     * @param rounds the rounds to replay.
+     * @return the report; the death round is the first round the listener did not survive.
+     */
+    public ReplayReport replay(List<GameRoundServerMessage> rounds) {
+        long[] latencies = new long[rounds.size()];
+        int survived = 0;
+        long deathRound = -1;
+        int unanswered = 0;
+        int errors = 0;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds.size(); i++) {
+            GameRoundServerMessage round = rounds.get(i);
+            long t0 = System.nanoTime();
+            Outcome result = play(round);
+            latencies[i] = System.nanoTime() - t0;
+            if (result == Outcome.ERROR) {
+                errors++;
+            } else if (result == Outcome.UNANSWERED) {
+                unanswered++;
+            }
+            if (apply(round)) {
+                survived++;
+            } else if (deathRound < 0) {
+                deathRound = round.getRound();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        end(rounds.isEmpty() ? 0 : rounds.get(rounds.size() - 1).getRound());
+
+        return new ReplayReport(rounds.size(), elapsed, latencies, survived, deathRound, unanswered, errors,
+                new FixedValues().set(outcome));
+    }
+
+    /**
+     * Plays a generated game: the values after each round are the submarine's values in the next one.
+     * The game stops when the submarine dies or after the given number of rounds.
+     *
+     * @param generator the round generator.
+     * @param rounds    the maximum number of rounds.
+     * @return the report.
+     */
+    public ReplayReport play(RoundGenerator generator, int rounds) {
+        long[] latencies = new long[rounds];
+        int played = 0;
+        int survived = 0;
+        long deathRound = -1;
+        int unanswered = 0;
+        int errors = 0;
+        Values current = generator.startValues();
+        outcome.set(current);
+
+        long start = System.nanoTime();
+        while (played < rounds && deathRound < 0) {
+            GameRoundServerMessage round = generator.next(played + 1, current);
+            long t0 = System.nanoTime();
+            Outcome result = play(round);
+            latencies[played++] = System.nanoTime() - t0;
+            if (result == Outcome.ERROR) {
+                errors++;
+            } else if (result == Outcome.UNANSWERED) {
+                unanswered++;
+            }
+            if (apply(round)) {
+                survived++;
+                current = outcome.toValues();
+            } else {
+                deathRound = round.getRound();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        end(played);
+
+        return new ReplayReport(played, elapsed, latencies, survived, deathRound, unanswered, errors,
+                new FixedValues().set(outcome));
+    }
+
+    private enum Outcome {
+        ANSWERED, UNANSWERED, ERROR
+    }
+
+    private Outcome play(GameRoundServerMessage round) {
+        try {
+            listener.onGameRoundServerMessage(client, round);
+        } catch (Exception ex) {
+            client.onError(ex);
+        }
+        return client.takeError() != null ? Outcome.ERROR : client.hasSent() ? Outcome.ANSWERED : Outcome.UNANSWERED;
+    }
+
+    /**
+     * Applies the listener's answer to a round.
+     *
+     * @return true if the submarine survives the round.
+     */
+    private boolean apply(GameRoundServerMessage round) {
+        SelectActionsClientMessage answer = client.takeSent();
+        List<Long> ids = answer != null && round.getRoundId() != null && round.getRoundId().equals(answer.getRoundId())
+                && answer.getActionIds() != null
+                ? answer.getActionIds()
+                : Collections.<Long>emptyList();
+        model.load(round);
+        if (plan.length < ids.size()) {
+            plan = new int[ids.size()];
+        }
+        int length = model.toPlan(ids, plan);
+        return model.simulate(plan, length, outcome);
+    }
+
+    private void end(long round) {
+        GameEndedServerMessage msg = new GameEndedServerMessage();
+        msg.setRound(round);
+        try {
+            listener.onGameEndedServerMessage(client, msg);
+        } catch (Exception ex) {
+            client.onError(ex);
+        }
+        client.takeError();
+    }
+}
@@ -0,0 +1,250 @@
+package be.thebeehive.htf.simulation;
+
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Action;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Effect;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Submarine;
+import be.thebeehive.htf.library.protocol.server.GameRoundServerMessage.Values;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Generates realistic {@link GameRoundServerMessage}s for offline runs.
+ * <p>
+ * Every distribution is uniform over a configurable range. Effects damage the submarine at a step of the round,
+ * actions heal or hurt it and may block one effect. Values carry two decimal places, like the server's.
+ * The same seed always yields the same rounds.
+ */
+public class RoundGenerator {
+
+    private final Random random;
+    private long nextEffectId = 1;
+    private long nextActionId = 1;
+
+    private int minActions = 5;
+    private int maxActions = 15;
+    private int minEffects = 1;
+    private int maxEffects = 4;
+    private int maxStep = 5;
+    private double minEffectDamage = 1;
+    private double maxEffectDamage = 12;
+    private double minActionDelta = -8;
+    private double maxActionDelta = 10;
+    private double maxValueDelta = 5;
+    private double maxValueChance = 0.1;
+    private double blockerChance = 0.4;
+    private BigDecimal startMaxHull = BigDecimal.valueOf(100);
+    private BigDecimal startMaxCrew = BigDecimal.valueOf(100);
+
+    public RoundGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Sets the number of actions per round.
+     *
+     * @param min the minimum, inclusive.
+     * @param max the maximum, inclusive.
+     * @return this generator.
+     */
+    public RoundGenerator actions(int min, int max) {
+        checkRange(0, min);
+        checkRange(min, max);
+        this.minActions = min;
+        this.maxActions = max;
+        return this;
+    }
+
+    /**
+     * Sets the number of effects per round.
+     *
+     * @param min the minimum, inclusive.
+     * @param max the maximum, inclusive.
+     * @return this generator.
+     */
+    public RoundGenerator effects(int min, int max) {
+        checkRange(0, min);
+        checkRange(min, max);
+        this.minEffects = min;
+        this.maxEffects = max;
+        return this;
+    }
+
+    /**
+     * Sets the last step an effect can happen at; effects are spread uniformly over steps 1 to maxStep.
+     *
+     * @param maxStep the last step, at least 1.
+     * @return this generator.
+     */
+    public RoundGenerator maxStep(int maxStep) {
+        checkRange(1, maxStep);
+        this.maxStep = maxStep;
+        return this;
+    }
+
+    /**
+     * Sets the hull and crew damage of a single effect.
+     *
+     * @param min the minimum damage.
+     * @param max the maximum damage.
+     * @return this generator.
+     */
+    public RoundGenerator effectDamage(double min, double max) {
+        checkRange(0, min);
+        checkRange(min, max);
+        this.minEffectDamage = min;
+        this.maxEffectDamage = max;
+        return this;
+    }
+
+    /**
+     * Sets the hull and crew delta of a single action.
+     *
+     * @param min the minimum delta, usually negative.
+     * @param max the maximum delta.
+     * @return this generator.
+     */
+    public RoundGenerator actionDelta(double min, double max) {
+        checkRange(min, max);
+        this.minActionDelta = min;
+        this.maxActionDelta = max;
+        return this;
+    }
+
+    /**
+     * Sets how often an action changes a maximum value and by how much at most, in either direction.
+     *
+     * @param chance   the probability that an action changes the max hull or crew.
+     * @param maxDelta the largest change.
+     * @return this generator.
+     */
+    public RoundGenerator maxValueDelta(double chance, double maxDelta) {
+        checkRange(0, chance);
+        checkRange(chance, 1);
+        checkRange(0, maxDelta);
+        this.maxValueChance = chance;
+        this.maxValueDelta = maxDelta;
+        return this;
+    }
+
+    /**
+     * Sets the probability that an action blocks one of the round's effects.
+     *
+     * @param chance the probability, between 0 and 1.
+     * @return this generator.
+     */
+    public RoundGenerator blockerChance(double chance) {
+        checkRange(0, chance);
+        checkRange(chance, 1);
+        this.blockerChance = chance;
+        return this;
+    }
+
+    /**
+     * @return the values of a fresh submarine.
+     */
+    public Values startValues() {
+        return values(startMaxHull, startMaxHull, startMaxCrew, startMaxCrew);
+    }
+
+    /**
+     * Generates a round for a fresh submarine.
+     *
+     * @param round the round number.
+     * @return the round.
+     */
+    public GameRoundServerMessage next(long round) {
+        return next(round, startValues());
+    }
+
+    /**
+     * Generates a round.
+     *
+     * @param round   the round number.
+     * @param current the current values of our submarine.
+     * @return the round.
+     */
+    public GameRoundServerMessage next(long round, Values current) {
+        GameRoundServerMessage msg = new GameRoundServerMessage();
+        msg.setRound(round);
+        msg.setRoundId(new UUID(random.nextLong(), random.nextLong()));
+
+        Submarine sub = new Submarine();
+        sub.setName("replay");
+        sub.setAlive(true);
+        sub.setValues(current);
+        msg.setOurSubmarine(sub);
+        msg.setCompetingSubmarines(Collections.<Submarine>emptyList());
+
+        int effectCount = between(minEffects, maxEffects);
+        List<Effect> effects = new ArrayList<>(effectCount);
+        for (int i = 0; i < effectCount; i++) {
+            Effect effect = new Effect();
+            effect.setId(nextEffectId++);
+            effect.setStep(between(1, maxStep));
+            effect.setValues(values(
+                    decimal(-between(minEffectDamage, maxEffectDamage)),
+                    BigDecimal.ZERO,
+                    decimal(-between(minEffectDamage, maxEffectDamage)),
+                    BigDecimal.ZERO
+            ));
+            effects.add(effect);
+        }
+        msg.setEffects(effects);
+
+        int actionCount = between(minActions, maxActions);
+        List<Action> actions = new ArrayList<>(actionCount);
+        for (int i = 0; i < actionCount; i++) {
+            Action action = new Action();
+            action.setId(nextActionId++);
+            action.setEffectId(!effects.isEmpty() && random.nextDouble() < blockerChance
+                    ? effects.get(random.nextInt(effects.size())).getId()
+                    : -1);
+            action.setValues(values(
+                    decimal(between(minActionDelta, maxActionDelta)),
+                    maxValue(),
+                    decimal(between(minActionDelta, maxActionDelta)),
+                    maxValue()
+            ));
+            actions.add(action);
+        }
+        msg.setActions(actions);
+        return msg;
+    }
+
+    private BigDecimal maxValue() {
+        return random.nextDouble() < maxValueChance ? decimal(between(-maxValueDelta, maxValueDelta)) : BigDecimal.ZERO;
+    }
+
+    private int between(int min, int max) {
+        return min + random.nextInt(max - min + 1);
+    }
+
+    private double between(double min, double max) {
+        return min + random.nextDouble() * (max - min);
+    }
+
+    private static BigDecimal decimal(double value) {
+        return BigDecimal.valueOf(Math.round(value * 100), 2);
+    }
+
+    private static Values values(BigDecimal hull, BigDecimal maxHull, BigDecimal crew, BigDecimal maxCrew) {
+        Values v = new Values();
+        v.setHullStrength(hull);
+        v.setMaxHullStrength(maxHull);
+        v.setCrewHealth(crew);
+        v.setMaxCrewHealth(maxCrew);
+        return v;
+    }
+
+    private static void checkRange(double min, double max) {
+        if (max < min) {
+            throw new IllegalArgumentException("Invalid range: " + min + " - " + max);
+        }
+    }
+}
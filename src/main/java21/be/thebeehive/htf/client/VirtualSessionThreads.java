@@ -0,0 +1,17 @@
+package be.thebeehive.htf.client;
+
+/**
+ * {@link SessionThreads} on virtual threads, only compiled by the {@code java21} profile.
+ * Loaded through {@link SessionThreads#virtual()}.
+ */
+final class VirtualSessionThreads implements SessionThreads {
+
+    VirtualSessionThreads() {
+
+    }
+
+    @Override
+    public Thread start(String name, Runnable task) {
+        return Thread.ofVirtual().name(name).start(task);
+    }
+}